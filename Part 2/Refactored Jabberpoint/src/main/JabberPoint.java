@@ -1,13 +1,18 @@
 package main;
 
+import main.accessor.Accessors;
 import main.accessor.DemoReadAccessor;
-import main.accessor.XMLReadAccessor;
 import main.exception.AccessorException;
 import main.model.Presentation;
+import main.ui.SlideExporter;
+import main.ui.SlideServer;
 import main.ui.SlideViewerFrame;
 import main.util.TextEnums;
 
+import java.awt.*;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.logging.Logger;
 
 
 /**
@@ -22,19 +27,106 @@ import java.io.IOException;
  */
 
 public class JabberPoint {
+    private static final Logger logger = Logger.getLogger(JabberPoint.class.getName()); //Logger
+    private static final String CONVERT = "-convert"; //Converts a presentation instead of showing it
+    private static final String EXPORT = "-export"; //Exports the slides to images instead of showing them
+    private static final String SERVE = "-serve"; //Serves the slides over HTTP instead of showing them
+    private static final int EXPORT_WIDTH = 1200; //Default width of exported and served slides
+    private static final int EXPORT_HEIGHT = 800; //Default height of exported and served slides
+    private static final int SERVE_PORT = 8080; //Default port to serve the slides on
+
     /**
      * The main program
+     * "-convert from to" converts a presentation between XML, .jpb and .jpz
+     * "-export from directory [width height]" renders the slides to PNG files without a window
+     * "-serve from [port]" serves the slides as PNG images on http://host:port/slides/{n}.png
      */
-    public static void main(String[] argv) throws AccessorException, IOException {
+    public static void main(String[] argv) {
+        if (argv.length == 3 && CONVERT.equals(argv[0])) {
+            convert(argv[1], argv[2]);
+            return;
+        }
+        if ((argv.length == 3 || argv.length == 5) && EXPORT.equals(argv[0])) {
+            export(argv);
+            return;
+        }
+        if ((argv.length == 2 || argv.length == 3) && SERVE.equals(argv[0])) {
+            serve(argv);
+            return;
+        }
 
         Presentation presentation = new Presentation();
         new SlideViewerFrame(TextEnums.JAB_VERSION.getName(), presentation);
         if (argv.length == 0) { // No args: use demo
-            new DemoReadAccessor().loadFile(presentation, "");
+            presentation.loadInBackground(new DemoReadAccessor(), "");
         } else {
-            new XMLReadAccessor().loadFile(presentation, argv[0]);
+            presentation.loadInBackground(Accessors.reader(argv[0]), argv[0]);
+            if (!Accessors.isBinary(argv[0]) && !Accessors.isBundle(argv[0])) {
+                presentation.watchSource(Accessors.reader(argv[0]), argv[0]);
+            }
+        }
+    }
+
+    /**
+     * Converts a presentation and exits
+     *
+     * @param from the file to read
+     * @param to   the file to write
+     */
+    private static void convert(String from, String to) {
+        try {
+            Accessors.convert(from, to);
+        } catch (AccessorException | IOException e) {
+            logger.info("Error converting file: " + e.getMessage());
+            exitApplication(1);
+        }
+    }
+
+    /**
+     * Exports the slides of a presentation to PNG files and exits
+     * The timings are printed on standard output
+     *
+     * @param argv the arguments: -export, the file to read, the directory and optionally the width and height
+     */
+    private static void export(String[] argv) {
+        System.setProperty("java.awt.headless", "true");
+        try {
+            Dimension size = argv.length == 5
+                    ? new Dimension(Integer.parseInt(argv[3]), Integer.parseInt(argv[4]))
+                    : new Dimension(EXPORT_WIDTH, EXPORT_HEIGHT);
+            if (size.width <= 0 || size.height <= 0) {
+                throw new NumberFormatException("Size must be positive: " + size.width + "x" + size.height);
+            }
+            Presentation presentation = new Presentation();
+            Accessors.reader(argv[1]).loadFile(presentation, argv[1]);
+            new SlideExporter(presentation, size, Paths.get(argv[2]), System.out).export();
+        } catch (NumberFormatException | AccessorException | IOException e) {
+            logger.info("Error exporting file: " + e.getMessage());
+            exitApplication(1);
+        }
+    }
+
+    /**
+     * Serves the slides of a presentation over HTTP until the program is stopped
+     * An XML presentation is reloaded when its file changes, which changes the ETags of the edited slides
+     *
+     * @param argv the arguments: -serve, the file to read and optionally the port
+     */
+    private static void serve(String[] argv) {
+        System.setProperty("java.awt.headless", "true");
+        try {
+            int port = argv.length == 3 ? Integer.parseInt(argv[2]) : SERVE_PORT;
+            Presentation presentation = new Presentation();
+            Accessors.reader(argv[1]).loadFile(presentation, argv[1]);
+            if (!Accessors.isBinary(argv[1]) && !Accessors.isBundle(argv[1])) {
+                presentation.watchSource(Accessors.reader(argv[1]), argv[1]);
+            }
+            port = new SlideServer(presentation, new Dimension(EXPORT_WIDTH, EXPORT_HEIGHT)).start(port);
+            logger.info("Serving " + presentation.getSize() + " slides on port " + port);
+        } catch (NumberFormatException | AccessorException | IOException e) {
+            logger.info("Error serving file: " + e.getMessage());
+            exitApplication(1);
         }
-        presentation.setSlideNumber(0);
     }
 
     /**
@@ -0,0 +1,107 @@
+package main.accessor;
+
+import main.exception.AccessorException;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An AccessorTask loads or saves a presentation on its own daemon thread
+ * The task completes when the work is done, or exceptionally with whatever
+ * it failed with, an Error included, so nobody waits on it forever. Cancelling
+ * the task interrupts the thread; accessors check for that and stop early.
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+public class AccessorTask extends CompletableFuture<Void> {
+    private final Thread thread; // The thread doing the work
+    private final Progress progress; // The progress of the work
+
+    /**
+     * The work of a task
+     */
+    @FunctionalInterface
+    public interface Work {
+
+        /**
+         * Does the work
+         *
+         * @param progress the progress to report to
+         * @throws AccessorException if the presentation cannot be read or written
+         * @throws IOException if the file cannot be read or written
+         */
+        void run(Progress progress) throws AccessorException, IOException;
+    }
+
+    /**
+     * Constructor for AccessorTask
+     * The task is not started
+     *
+     * @param name     the name of the thread
+     * @param progress the progress to report to
+     * @param work     the work
+     */
+    public AccessorTask(String name, Progress progress, Work work) {
+        this.progress = progress;
+        this.thread = new Thread(() -> {
+            try {
+                work.run(progress);
+                complete(null);
+            } catch (Throwable e) {
+                completeExceptionally(e);
+                if (e instanceof Error error) {
+                    throw error;
+                }
+            } finally {
+                progress.finish();
+            }
+        }, name);
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts the work
+     *
+     * @return this task
+     */
+    public AccessorTask start() {
+        thread.start();
+        return this;
+    }
+
+    /**
+     * @return the progress of the work
+     */
+    public Progress getProgress() {
+        return progress;
+    }
+
+    /**
+     * Cancels the task and interrupts its thread
+     * The task completes at once; the thread stops at the next point
+     * where the accessor checks for interruption
+     *
+     * @param mayInterruptIfRunning true to interrupt the thread
+     * @return true if the task was cancelled
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (mayInterruptIfRunning) {
+            thread.interrupt();
+        }
+        return cancelled;
+    }
+
+    /**
+     * Waits until the thread has stopped, unless it is the calling thread
+     *
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    public void awaitTermination() throws InterruptedException {
+        if (Thread.currentThread() != thread) {
+            thread.join();
+        }
+    }
+}
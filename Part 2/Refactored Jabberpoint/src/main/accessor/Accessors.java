@@ -0,0 +1,85 @@
+package main.accessor;
+
+import main.exception.AccessorException;
+import main.model.Presentation;
+
+import java.io.IOException;
+
+/**
+ * Accessors chooses the accessor for a file by its name
+ * Files ending in .jpb are binary presentations, files ending in .jpz
+ * are presentation bundles and all others are XML
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+public final class Accessors {
+
+    /**
+     * Constructor for Accessors
+     */
+    private Accessors() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Checks whether a file is a binary presentation
+     *
+     * @param filename the name of the file
+     * @return true if the file name ends in .jpb
+     */
+    public static boolean isBinary(String filename) {
+        return filename.toLowerCase().endsWith(BinaryFormat.EXTENSION);
+    }
+
+    /**
+     * Checks whether a file is a presentation bundle
+     *
+     * @param filename the name of the file
+     * @return true if the file name ends in .jpz
+     */
+    public static boolean isBundle(String filename) {
+        return filename.toLowerCase().endsWith(BundleFormat.EXTENSION);
+    }
+
+    /**
+     * get the accessor that reads a file
+     *
+     * @param filename the name of the file
+     * @return the read accessor
+     */
+    public static ReadAccessor reader(String filename) {
+        if (isBinary(filename)) {
+            return new BinaryReadAccessor();
+        }
+        return isBundle(filename) ? new BundleReadAccessor() : new XMLReadAccessor();
+    }
+
+    /**
+     * get the accessor that writes a file
+     *
+     * @param filename the name of the file
+     * @return the write accessor
+     */
+    public static WriteAccessor writer(String filename) {
+        if (isBinary(filename)) {
+            return new BinaryWriteAccessor();
+        }
+        return isBundle(filename) ? new BundleWriteAccessor() : new XMLWriteAccessor();
+    }
+
+    /**
+     * Converts a presentation from one format to another
+     * The formats are chosen by the file names
+     *
+     * @param from the file to read
+     * @param to the file to write
+     * @throws AccessorException if a file cannot be read or written
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void convert(String from, String to) throws AccessorException, IOException {
+        Presentation presentation = new Presentation();
+        reader(from).loadFile(presentation, from);
+        writer(to).saveFile(presentation, to);
+    }
+}
@@ -0,0 +1,69 @@
+package main.accessor;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * AtomicFiles replaces files without leaving them half written
+ * The new contents are written to a temporary file next to the target,
+ * flushed to disk and then renamed over the target, so a crash during a
+ * save leaves either the old or the new file.
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+final class AtomicFiles {
+
+    /**
+     * Constructor for AtomicFiles
+     */
+    private AtomicFiles() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Writes the contents of a file
+     */
+    interface ContentWriter {
+
+        /**
+         * Writes the contents
+         *
+         * @param file the temporary file to write to
+         * @throws IOException if the file cannot be written to
+         */
+        void write(Path file) throws IOException;
+    }
+
+    /**
+     * Replaces a file
+     *
+     * @param filename the file to replace
+     * @param writer writes the new contents to a temporary file
+     * @throws IOException if the file cannot be written to
+     */
+    static void replace(String filename, ContentWriter writer) throws IOException {
+        Path target = Paths.get(filename).toAbsolutePath();
+        //not Files.createTempFile, which would give the saved file owner-only permissions
+        Path temp = target.resolveSibling(target.getFileName() + "." + Long.toHexString(System.nanoTime()) + ".tmp");
+        try {
+            writer.write(temp);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
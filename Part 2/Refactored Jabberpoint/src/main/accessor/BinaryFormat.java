@@ -0,0 +1,32 @@
+package main.accessor;
+
+/**
+ * Constants of the indexed binary presentation format (.jpb)
+ * <pre>
+ * header   magic "JPB1", int version, int slide count, string show title
+ * index    one long file offset per slide
+ * slides   string title, int item count, then per item:
+ *          byte kind, int level, string text or image path,
+ *          and for images (since version 2) int width, int height
+ * string   int byte length (-1 for null), UTF-8 bytes
+ * </pre>
+ * All numbers are big-endian.
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+final class BinaryFormat {
+    static final int MAGIC = 0x4A504231; // "JPB1"
+    static final int VERSION = 2; // The format version that is written
+    static final int IMAGE_SIZE_VERSION = 2; // The first version that stores image dimensions
+    static final byte KIND_TEXT = 0; // A text item
+    static final byte KIND_IMAGE = 1; // An image item
+    static final String EXTENSION = ".jpb"; // The file name extension
+
+    /**
+     * Constructor for BinaryFormat
+     */
+    private BinaryFormat() {
+        throw new IllegalStateException("Utility class");
+    }
+}
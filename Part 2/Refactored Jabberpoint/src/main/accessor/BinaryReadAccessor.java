@@ -0,0 +1,173 @@
+package main.accessor;
+
+import main.exception.AccessorException;
+import main.model.BitmapItem;
+import main.model.Presentation;
+import main.model.Slide;
+import main.model.SlideSource;
+import main.model.TextItem;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Logger;
+
+/**
+ * This Accessor reads the indexed binary presentation format (.jpb)
+ * The file is memory-mapped and only the header is read when it is opened;
+ * a slide is decoded when the presentation first asks for it.
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+public class BinaryReadAccessor implements ReadAccessor {
+
+    private static final Logger logger = Logger.getLogger(BinaryReadAccessor.class.getName()); // Logger
+
+    /**
+     * Loads the presentation from a file
+     *
+     * @param presentation Presentation to load into
+     * @param filename String filename to load from
+     * @throws AccessorException if the file is not a binary presentation
+     * @throws IOException if the file cannot be read
+     */
+    public void loadFile(Presentation presentation, String filename) throws AccessorException, IOException {
+        loadFile(presentation, filename, new Progress());
+    }
+
+    /**
+     * Loads the presentation from a file, reporting the file and all slides as read once it is mapped
+     *
+     * @param presentation Presentation to load into
+     * @param filename String filename to load from
+     * @param progress the progress to report to
+     * @throws AccessorException if the file is not a binary presentation
+     * @throws IOException if the file cannot be read
+     */
+    @Override
+    public void loadFile(Presentation presentation, String filename, Progress progress) throws AccessorException, IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new AccessorException("File too large to map: " + filename);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (buffer.getInt() != BinaryFormat.MAGIC) {
+                throw new AccessorException("Not a binary presentation: " + filename);
+            }
+            int version = buffer.getInt();
+            if (version < 1 || version > BinaryFormat.VERSION) {
+                throw new AccessorException("Unsupported binary presentation version: " + version);
+            }
+            int size = buffer.getInt();
+            String title = readString(buffer);
+            int indexOffset = buffer.position();
+            if (size < 0 || indexOffset + (long) size * Long.BYTES > buffer.limit()) {
+                throw new AccessorException("Damaged slide index: " + filename);
+            }
+            presentation.setTitle(title);
+            presentation.setSlideSource(new MappedSlideSource(buffer, version, indexOffset, size));
+            progress.setTotalBytes(buffer.limit());
+            progress.addBytes(buffer.limit());
+            progress.addSlides(size);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new AccessorException("Damaged binary presentation: " + filename);
+        }
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string at the position of the buffer
+     *
+     * @param buffer the buffer
+     * @return the string, may be null
+     */
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes slides from the mapped file when they are asked for
+     */
+    private static class MappedSlideSource implements SlideSource {
+        private final ByteBuffer buffer; // The mapped file
+        private final int version; // The format version of the file
+        private final int indexOffset; // The position of the slide index
+        private final int size; // The number of slides
+
+        /**
+         * Constructor for MappedSlideSource
+         *
+         * @param buffer the mapped file
+         * @param version the format version of the file
+         * @param indexOffset the position of the slide index
+         * @param size the number of slides
+         */
+        MappedSlideSource(ByteBuffer buffer, int version, int indexOffset, int size) {
+            this.buffer = buffer;
+            this.version = version;
+            this.indexOffset = indexOffset;
+            this.size = size;
+        }
+
+        /**
+         * get the number of slides
+         *
+         * @return the number of slides
+         */
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * Decodes a slide
+         * Each call reads through its own view of the buffer, so slides may be
+         * decoded from several threads. A damaged slide is returned empty.
+         *
+         * @param number the number of the slide
+         * @return the slide
+         */
+        public Slide loadSlide(int number) {
+            ByteBuffer view = buffer.duplicate();
+            Slide slide = new Slide();
+            try {
+                view.position((int) view.getLong(indexOffset + number * Long.BYTES));
+                slide.setTitle(readString(view));
+                int count = view.getInt();
+                for (int itemNumber = 0; itemNumber < count; itemNumber++) {
+                    byte kind = view.get();
+                    int level = view.getInt();
+                    String content = readString(view);
+                    if (kind == BinaryFormat.KIND_TEXT) {
+                        slide.appendText(new TextItem(level, content));
+                    } else if (kind == BinaryFormat.KIND_IMAGE && version >= BinaryFormat.IMAGE_SIZE_VERSION) {
+                        Dimension imageSize = new Dimension(view.getInt(), view.getInt());
+                        slide.appendText(new BitmapItem(level, content, new File(content).toPath(), imageSize));
+                    } else if (kind == BinaryFormat.KIND_IMAGE) {
+                        slide.appendText(new BitmapItem(level, content));
+                    } else {
+                        logger.info("Unknown element type");
+                    }
+                }
+            } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+                logger.info("Error reading slide " + number + ": " + e);
+            }
+            return slide;
+        }
+    }
+}
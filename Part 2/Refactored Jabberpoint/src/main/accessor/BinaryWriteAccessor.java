@@ -0,0 +1,166 @@
+package main.accessor;
+
+import main.exception.AccessorException;
+import main.model.BitmapItem;
+import main.model.Presentation;
+import main.model.Slide;
+import main.model.SlideItem;
+import main.model.TextItem;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.logging.Logger;
+
+/**
+ * This Accessor writes the indexed binary presentation format (.jpb)
+ * The file is replaced atomically, so a failed save leaves the old file.
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+public class BinaryWriteAccessor implements WriteAccessor {
+
+    private static final Logger logger = Logger.getLogger(BinaryWriteAccessor.class.getName()); // Logger
+
+    /**
+     * Saves the presentation to a file
+     * The slides are written first; the slide index is filled in afterwards
+     *
+     * @param presentation Presentation to save
+     * @param filename String filename to save to
+     * @throws AccessorException if the file cannot be written to
+     * @throws IOException if the file cannot be written to
+     */
+    public void saveFile(Presentation presentation, String filename) throws AccessorException, IOException {
+        saveFile(presentation, filename, new Progress());
+    }
+
+    /**
+     * Saves the presentation to a file, reporting the slides written
+     *
+     * @param presentation Presentation to save
+     * @param filename String filename to save to
+     * @param progress the progress to report to
+     * @throws AccessorException if the file cannot be written to
+     * @throws IOException if the file cannot be written to, or the save was interrupted
+     */
+    @Override
+    public void saveFile(Presentation presentation, String filename, Progress progress) throws AccessorException, IOException {
+        AtomicFiles.replace(filename,
+                file -> writeFile(presentation.getTitle(), presentation.getSize(), presentation::getSlide, file, progress));
+    }
+
+    /**
+     * Saves slides that are not part of a presentation, such as those kept for a snapshot
+     *
+     * @param title the title of the presentation
+     * @param slides the slides
+     * @param filename String filename to save to
+     * @throws IOException if the file cannot be written to
+     */
+    void saveSlides(String title, List<Slide> slides, String filename) throws IOException {
+        AtomicFiles.replace(filename, file -> writeFile(title, slides.size(), slides::get, file, new Progress()));
+    }
+
+    /**
+     * Writes the slides of a presentation to a file
+     *
+     * @param title the title of the presentation
+     * @param size the number of slides
+     * @param slides gives the slide with a number
+     * @param file the file to write to
+     * @param progress the progress to report the slides written to
+     * @throws IOException if the file cannot be written to, or the save was interrupted
+     */
+    private void writeFile(String title, int size, IntFunction<Slide> slides, Path file, Progress progress)
+            throws IOException {
+        long[] offsets = new long[size];
+        long indexOffset;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(BinaryFormat.MAGIC);
+            out.writeInt(BinaryFormat.VERSION);
+            out.writeInt(size);
+            writeString(out, title);
+            indexOffset = out.size();
+            for (int slideNumber = 0; slideNumber < size; slideNumber++) {
+                out.writeLong(0);
+            }
+            long written = indexOffset + (long) size * Long.BYTES;
+            progress.setTotalSlides(size);
+            for (int slideNumber = 0; slideNumber < size; slideNumber++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Save cancelled");
+                }
+                offsets[slideNumber] = written;
+                int before = out.size();
+                writeSlide(out, slides.apply(slideNumber));
+                written += out.size() - before;
+                progress.addSlides(1);
+            }
+        }
+        try (RandomAccessFile index = new RandomAccessFile(file.toFile(), "rw")) {
+            index.seek(indexOffset);
+            for (long offset : offsets) {
+                index.writeLong(offset);
+            }
+        }
+    }
+
+    /**
+     * Writes a slide
+     *
+     * @param out The output stream
+     * @param slide The slide
+     * @throws IOException if the file cannot be written to
+     */
+    private void writeSlide(DataOutputStream out, Slide slide) throws IOException {
+        writeString(out, slide.getTitle());
+        int count = 0;
+        for (SlideItem slideItem : slide.getSlideItems()) {
+            if (slideItem instanceof TextItem || slideItem instanceof BitmapItem) {
+                count++;
+            }
+        }
+        out.writeInt(count);
+        for (SlideItem slideItem : slide.getSlideItems()) {
+            if (slideItem instanceof TextItem textItem) {
+                out.writeByte(BinaryFormat.KIND_TEXT);
+                out.writeInt(textItem.getLevel());
+                writeString(out, textItem.getText());
+            } else if (slideItem instanceof BitmapItem bitmapItem) {
+                out.writeByte(BinaryFormat.KIND_IMAGE);
+                out.writeInt(bitmapItem.getLevel());
+                writeString(out, bitmapItem.imagePath);
+                out.writeInt(bitmapItem.getImageSize().width);
+                out.writeInt(bitmapItem.getImageSize().height);
+            } else {
+                logger.info("Ignoring unknown SlideItem type");
+            }
+        }
+    }
+
+    /**
+     * Writes a length-prefixed UTF-8 string
+     *
+     * @param out The output stream
+     * @param value The string, may be null
+     * @throws IOException if the file cannot be written to
+     */
+    private void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,24 @@
+package main.accessor;
+
+/**
+ * Constants of the presentation bundle format (.jpz)
+ * A bundle is a zip file that holds the presentation XML and its images.
+ * The XML refers to the images by their entry names; each image is stored
+ * once, uncompressed, under a name made from the SHA-256 of its contents.
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+final class BundleFormat {
+    static final String EXTENSION = ".jpz"; // The file name extension
+    static final String PRESENTATION_ENTRY = "presentation.xml"; // The entry holding the presentation XML
+    static final String IMAGE_DIRECTORY = "images/"; // The directory holding the images
+    static final String DIGEST = "SHA-256"; // The hash that names the images
+
+    /**
+     * Constructor for BundleFormat
+     */
+    private BundleFormat() {
+        throw new IllegalStateException("Utility class");
+    }
+}
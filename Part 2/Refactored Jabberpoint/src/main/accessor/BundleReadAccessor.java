@@ -0,0 +1,54 @@
+package main.accessor;
+
+import main.exception.AccessorException;
+import main.model.Presentation;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * This Accessor reads presentation bundles (.jpz)
+ * The bundle is opened as a zip file system. Only the presentation XML
+ * is read when the bundle is opened; images are streamed from their
+ * entries when they are first decoded. Every load opens the bundle anew,
+ * so a bundle that has been saved again is read as it is now, and hands
+ * it to the presentation, which keeps it open for as long as its slides
+ * show images from it.
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+public class BundleReadAccessor extends XMLReadAccessor {
+
+    /**
+     * Loads the presentation from a bundle, reporting the bytes of XML read
+     * and the slides and images produced
+     *
+     * @param presentation Presentation to load into
+     * @param filename String filename to load from
+     * @param progress the progress to report to
+     * @throws AccessorException if the file is not a presentation bundle
+     * @throws IOException if the file cannot be read
+     */
+    @Override
+    public void loadFile(Presentation presentation, String filename, Progress progress) throws AccessorException, IOException {
+        FileSystem bundle = FileSystems.newFileSystem(Paths.get(filename));
+        Path root = bundle.getPath("/");
+        Path xml = root.resolve(BundleFormat.PRESENTATION_ENTRY);
+        if (!Files.exists(xml)) {
+            bundle.close();
+            throw new AccessorException("Not a presentation bundle: " + filename);
+        }
+        presentation.holdFileSystem(bundle);
+        try (InputStream input = new BufferedInputStream(new ProgressInputStream(Files.newInputStream(xml), progress))) {
+            progress.setTotalBytes(Files.size(xml));
+            loadStream(presentation, input, progress, root);
+        }
+    }
+}
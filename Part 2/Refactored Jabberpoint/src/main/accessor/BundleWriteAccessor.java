@@ -0,0 +1,168 @@
+package main.accessor;
+
+import main.exception.AccessorException;
+import main.model.BitmapItem;
+import main.model.Presentation;
+import main.model.Slide;
+import main.model.SlideItem;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * This Accessor writes presentation bundles (.jpz)
+ * The images of the presentation are copied into the bundle, each
+ * distinct image once, and the XML refers to them by their entry names.
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+public class BundleWriteAccessor extends XMLWriteAccessor {
+
+    private static final Logger logger = Logger.getLogger(BundleWriteAccessor.class.getName()); // Logger
+    private final Map<Path, String> entries = new HashMap<>(); // The entry name of each image file, while saving
+
+    /**
+     * Saves the presentation to a bundle, reporting the images and slides written
+     *
+     * @param presentation Presentation to save
+     * @param filename String filename to save to
+     * @param progress the progress to report to
+     * @throws AccessorException if the file cannot be written to
+     * @throws IOException if the file cannot be written to, or the save was interrupted
+     */
+    @Override
+    public synchronized void saveFile(Presentation presentation, String filename, Progress progress)
+            throws AccessorException, IOException {
+        AtomicFiles.replace(filename, file -> {
+            try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+                writeImages(zip, presentation, progress);
+                zip.putNextEntry(new ZipEntry(BundleFormat.PRESENTATION_ENTRY));
+                writePresentation(new PrintWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8)),
+                        presentation, filename, progress);
+                zip.closeEntry();
+            } finally {
+                entries.clear();
+            }
+        });
+    }
+
+    /**
+     * Copies the images of the presentation into the bundle
+     * Images with the same contents are stored once
+     *
+     * @param zip The bundle
+     * @param presentation The presentation
+     * @param progress The progress to report the images written to
+     * @throws IOException if the bundle cannot be written to, or the save was interrupted
+     */
+    private void writeImages(ZipOutputStream zip, Presentation presentation, Progress progress) throws IOException {
+        MessageDigest digest = createDigest();
+        Set<String> written = new HashSet<>();
+        for (int slideNumber = 0; slideNumber < presentation.getSize(); slideNumber++) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Save cancelled");
+            }
+            Slide slide = presentation.getSlide(slideNumber);
+            for (SlideItem slideItem : slide.getSlideItems()) {
+                if (slideItem instanceof BitmapItem bitmapItem && !entries.containsKey(bitmapItem.getImageFile())) {
+                    writeImage(zip, digest, written, bitmapItem);
+                    progress.addImages(1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies an image into the bundle unless an image with the same contents is there
+     * An image that cannot be read keeps its path
+     *
+     * @param zip The bundle
+     * @param digest The hash that names the image
+     * @param written The entry names written so far
+     * @param bitmapItem The image item
+     * @throws IOException if the bundle cannot be written to
+     */
+    private void writeImage(ZipOutputStream zip, MessageDigest digest, Set<String> written,
+                            BitmapItem bitmapItem) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(bitmapItem.getImageFile());
+        } catch (IOException e) {
+            logger.info("Error reading image: " + e.getMessage());
+            entries.put(bitmapItem.getImageFile(), bitmapItem.imagePath);
+            return;
+        }
+        String name = BundleFormat.IMAGE_DIRECTORY + HexFormat.of().formatHex(digest.digest(bytes))
+                + extension(bitmapItem.imagePath);
+        entries.put(bitmapItem.getImageFile(), name);
+        if (!written.add(name)) {
+            return;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED); // images are compressed already
+        entry.setSize(bytes.length);
+        entry.setCompressedSize(bytes.length);
+        entry.setCrc(crc.getValue());
+        zip.putNextEntry(entry);
+        zip.write(bytes);
+        zip.closeEntry();
+    }
+
+    /**
+     * get the path that is written for an image
+     *
+     * @param bitmapItem The image item
+     * @return The entry name of the image in the bundle
+     */
+    @Override
+    protected String imageReference(BitmapItem bitmapItem) {
+        return entries.getOrDefault(bitmapItem.getImageFile(), bitmapItem.imagePath);
+    }
+
+    /**
+     * get the extension of an image path, including the dot
+     *
+     * @param imagePath The image path
+     * @return The extension, empty if there is none
+     */
+    private static String extension(String imagePath) {
+        int dot = imagePath.lastIndexOf('.');
+        if (dot < 0 || dot < imagePath.lastIndexOf('/')) {
+            return "";
+        }
+        return imagePath.substring(dot).toLowerCase();
+    }
+
+    /**
+     * Creates the hash that names the images
+     *
+     * @return The message digest
+     */
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(BundleFormat.DIGEST);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(BundleFormat.DIGEST + " is not available", e);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package main.accessor;
 import main.model.BitmapItem;
 import main.model.Presentation;
 import main.model.Slide;
+import main.model.SlideItem;
 
 /**
  * A read accessor for a demo presentation in Jabberpoint
@@ -18,6 +19,18 @@ public class DemoReadAccessor implements ReadAccessor {
      * @param unusedFilename The filename to load from
      */
     public void loadFile(Presentation presentation, String unusedFilename) {
+        loadFile(presentation, unusedFilename, new Progress());
+    }
+
+    /**
+     * Load a presentation from a file, reporting the slides and images produced
+     *
+     * @param presentation   The presentation to load
+     * @param unusedFilename The filename to load from
+     * @param progress       The progress to report to
+     */
+    @Override
+    public void loadFile(Presentation presentation, String unusedFilename, Progress progress) {
         presentation.setTitle("Demo Presentation");
         Slide slide;
         slide = new Slide();
@@ -32,7 +45,7 @@ public class DemoReadAccessor implements ReadAccessor {
         slide.appendText(3, "Next slide: PgDn or Enter");
         slide.appendText(3, "Previous slide: PgUp or up-arrow");
         slide.appendText(3, "Quit: q or Q");
-        presentation.append(slide);
+        append(presentation, slide, progress);
 
         slide = new Slide();
         slide.setTitle("Demonstration of levels and styles");
@@ -43,7 +56,7 @@ public class DemoReadAccessor implements ReadAccessor {
         slide.appendText(2, "Level 2 has style number 2");
         slide.appendText(3, "This is how level 3 looks like");
         slide.appendText(4, "And this is level 4");
-        presentation.append(slide);
+        append(presentation, slide, progress);
 
         slide = new Slide();
         slide.setTitle("The third slide");
@@ -52,7 +65,23 @@ public class DemoReadAccessor implements ReadAccessor {
         slide.appendText(1, " ");
         slide.appendText(1, "This is the end of the presentation.");
         slide.appendText(new BitmapItem(1, "Part 2/Refactored Jabberpoint/resources/img/JabberPoint.jpg"));
-        presentation.append(slide);
+        append(presentation, slide, progress);
     }
 
+    /**
+     * Append a slide and report it with its images
+     *
+     * @param presentation The presentation
+     * @param slide        The slide
+     * @param progress     The progress to report to
+     */
+    private void append(Presentation presentation, Slide slide, Progress progress) {
+        presentation.append(slide);
+        for (SlideItem slideItem : slide.getSlideItems()) {
+            if (slideItem instanceof BitmapItem) {
+                progress.addImages(1);
+            }
+        }
+        progress.addSlides(1);
+    }
 }
@@ -0,0 +1,169 @@
+package main.accessor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress counts how far a load or save has come
+ * Accessors report the bytes they have read, the slides they have
+ * produced or written and the images they have read; every change is
+ * passed on to the listener.
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+public class Progress {
+    private final ProgressListener listener; // The listener, may be null
+    private final AtomicLong bytes = new AtomicLong(); // The bytes read or written
+    private final AtomicLong totalBytes = new AtomicLong(-1); // The bytes to read or write, -1 if unknown
+    private final AtomicInteger slides = new AtomicInteger(); // The slides produced or written
+    private final AtomicInteger totalSlides = new AtomicInteger(-1); // The slides to write, -1 if unknown
+    private final AtomicInteger images = new AtomicInteger(); // The images read or written
+    private volatile boolean finished = false; // True once the work has ended
+
+    /**
+     * Constructor for Progress
+     * Progress without a listener is only counted
+     */
+    public Progress() {
+        this(null);
+    }
+
+    /**
+     * Constructor for Progress
+     *
+     * @param listener the listener, may be null
+     */
+    public Progress(ProgressListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * set the number of bytes to read or write
+     *
+     * @param total the number of bytes
+     */
+    public void setTotalBytes(long total) {
+        totalBytes.set(total);
+        changed();
+    }
+
+    /**
+     * add bytes that have been read or written
+     *
+     * @param count the number of bytes
+     */
+    public void addBytes(long count) {
+        bytes.addAndGet(count);
+        changed();
+    }
+
+    /**
+     * set the number of slides to write
+     *
+     * @param total the number of slides
+     */
+    public void setTotalSlides(int total) {
+        totalSlides.set(total);
+        changed();
+    }
+
+    /**
+     * add slides that have been produced or written
+     *
+     * @param count the number of slides
+     */
+    public void addSlides(int count) {
+        slides.addAndGet(count);
+        changed();
+    }
+
+    /**
+     * add images that have been read or written
+     *
+     * @param count the number of images
+     */
+    public void addImages(int count) {
+        if (count > 0) {
+            images.addAndGet(count);
+            changed();
+        }
+    }
+
+    /**
+     * Marks the work as ended, whether it succeeded or not
+     */
+    public void finish() {
+        finished = true;
+        changed();
+    }
+
+    /**
+     * @return the bytes read or written
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * @return the bytes to read or write, -1 if unknown
+     */
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    /**
+     * @return the slides produced or written
+     */
+    public int getSlides() {
+        return slides.get();
+    }
+
+    /**
+     * @return the slides to write, -1 if unknown
+     */
+    public int getTotalSlides() {
+        return totalSlides.get();
+    }
+
+    /**
+     * @return the images read or written
+     */
+    public int getImages() {
+        return images.get();
+    }
+
+    /**
+     * @return true once the work has ended
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * get the part of the work that is done
+     * Measured in bytes if their total is known, otherwise in slides
+     *
+     * @return the part done between 0 and 1, or -1 if it is unknown
+     */
+    public double getFraction() {
+        long total = totalBytes.get();
+        if (total > 0) {
+            return Math.min(1.0, (double) bytes.get() / total);
+        }
+        int slideTotal = totalSlides.get();
+        if (slideTotal > 0) {
+            return Math.min(1.0, (double) slides.get() / slideTotal);
+        }
+        return -1;
+    }
+
+    /**
+     * Passes a change on to the listener
+     */
+    private void changed() {
+        if (listener != null) {
+            listener.progressed(this);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package main.accessor;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream that reports the bytes read to a Progress
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+class ProgressInputStream extends FilterInputStream {
+    private final Progress progress; // The progress to report to
+
+    /**
+     * Constructor for ProgressInputStream
+     *
+     * @param in       the stream to read from
+     * @param progress the progress to report to
+     */
+    ProgressInputStream(InputStream in, Progress progress) {
+        super(in);
+        this.progress = progress;
+    }
+
+    /**
+     * Reads a byte
+     *
+     * @return the byte, or -1 at the end of the stream
+     * @throws IOException if the stream cannot be read
+     */
+    @Override
+    public int read() throws IOException {
+        int value = super.read();
+        if (value >= 0) {
+            progress.addBytes(1);
+        }
+        return value;
+    }
+
+    /**
+     * Reads bytes into an array
+     *
+     * @param bytes  the array
+     * @param offset the first position to fill
+     * @param length the maximum number of bytes
+     * @return the number of bytes read, or -1 at the end of the stream
+     * @throws IOException if the stream cannot be read
+     */
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        int count = super.read(bytes, offset, length);
+        if (count > 0) {
+            progress.addBytes(count);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,19 @@
+package main.accessor;
+
+/**
+ * A ProgressListener is told how far a load or save has come
+ * It is called on the thread that does the work
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    /**
+     * Called when the progress has changed
+     *
+     * @param progress the progress
+     */
+    void progressed(Progress progress);
+}
@@ -8,6 +8,8 @@ import java.io.IOException;
 /**
  * This Accessor is an interface for reading data
  * Subclasses should implement the load method
+ * Accessors that can tell how far they are should also implement
+ * the load method with progress; loadFileAsync loads on a background thread.
  *
  * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
  * @version 1.61 2024/01/10 Carla Redmond
@@ -25,6 +27,32 @@ public interface ReadAccessor {
      */
     void loadFile(Presentation p, String fn) throws AccessorException, IOException;
 
+    /**
+     * Loads the presentation from a file, reporting progress
+     * By default the slides are counted once the presentation has been loaded
+     *
+     * @param p Presentation to load into
+     * @param fn String filename to load from
+     * @param progress the progress to report to
+     * @throws AccessorException if the file cannot be read
+     * @throws IOException if the file cannot be read
+     */
+    default void loadFile(Presentation p, String fn, Progress progress) throws AccessorException, IOException {
+        loadFile(p, fn);
+        progress.addSlides(p.getSize());
+    }
+
+    /**
+     * Loads the presentation from a file on a background thread
+     *
+     * @param p Presentation to load into
+     * @param fn String filename to load from
+     * @param listener the listener to report progress to, may be null
+     * @return the running load, which can be cancelled
+     */
+    default AccessorTask loadFileAsync(Presentation p, String fn, ProgressListener listener) {
+        return new AccessorTask("presentation-loader", new Progress(listener), progress -> loadFile(p, fn, progress)).start();
+    }
 }
 
 
@@ -0,0 +1,331 @@
+package main.accessor;
+
+import main.exception.AccessorException;
+import main.model.BitmapItem;
+import main.model.Presentation;
+import main.model.Slide;
+import main.model.SlideItem;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ * SnapshotCache keeps parsed presentations on disk, so that a deck that
+ * has not changed is not parsed again when it is reopened
+ * A snapshot is a binary presentation (.jpb) with the image dimensions,
+ * so opening one maps it, reads no image headers and pages its slides in.
+ * Snapshots are named by a hash of the path, size, modification time and
+ * content checksum of the source file. Next to each snapshot is the list of
+ * the images it took dimensions from, with their size and modification time;
+ * a snapshot is only used while those images are unchanged. Snapshots are
+ * written in the background after the load has finished. When the snapshots
+ * grow beyond the size limit, the least recently used ones are deleted.
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+final class SnapshotCache {
+    private static final Logger logger = Logger.getLogger(SnapshotCache.class.getName()); // Logger
+    private static final SnapshotCache SHARED = createShared(); // The snapshot cache of the application, null if switched off
+    private static final int CHECKSUM_CHUNK = 1 << 24; // The part of the source mapped at a time for the checksum
+    private static final String IMAGES = ".images"; // The extension of the list of images next to a snapshot
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "snapshot-writer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    }); // Writes the snapshots
+    private final Path directory; // The directory the snapshots are kept in
+    private final long maxBytes; // The size limit of all snapshots together
+
+    /**
+     * Constructor for SnapshotCache
+     *
+     * @param directory the directory the snapshots are kept in
+     * @param maxBytes  the size limit of all snapshots together
+     */
+    SnapshotCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Creates the snapshot cache of the application from the system properties
+     * jabberpoint.snapshotCache, jabberpoint.snapshotDir and jabberpoint.snapshotCacheBytes
+     *
+     * @return the snapshot cache, null if it is switched off
+     */
+    private static SnapshotCache createShared() {
+        if (!Boolean.parseBoolean(System.getProperty("jabberpoint.snapshotCache", "true"))) {
+            return null;
+        }
+        String defaultDirectory = Paths.get(System.getProperty("user.home"), ".jabberpoint", "snapshots").toString();
+        return new SnapshotCache(Paths.get(System.getProperty("jabberpoint.snapshotDir", defaultDirectory)),
+                Long.getLong("jabberpoint.snapshotCacheBytes", 256L * 1024 * 1024));
+    }
+
+    /**
+     * get the snapshot cache of the application
+     *
+     * @return the snapshot cache, null if it is switched off
+     */
+    static SnapshotCache getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Computes the key of the current version of a source file
+     *
+     * @param source the source file
+     * @return the key
+     * @throws IOException if the source cannot be read
+     */
+    Key keyOf(Path source) throws IOException {
+        Path file = source.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        MessageDigest digest = createDigest();
+        digest.update(file.toString().getBytes(StandardCharsets.UTF_8));
+        digest.update(ByteBuffer.allocate(3 * Long.BYTES)
+                .putLong(attributes.size())
+                .putLong(attributes.lastModifiedTime().toMillis())
+                .putLong(checksum(file, attributes.size()))
+                .flip());
+        return new Key(HexFormat.of().formatHex(digest.digest()) + BinaryFormat.EXTENSION,
+                attributes.size(), attributes.lastModifiedTime());
+    }
+
+    /**
+     * Computes the checksum of the contents of a file
+     *
+     * @param file the file
+     * @param size the size of the file
+     * @return the CRC-32C of the contents
+     * @throws IOException if the file cannot be read
+     */
+    private static long checksum(Path file, long size) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (long position = 0; position < size; position += CHECKSUM_CHUNK) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(CHECKSUM_CHUNK, size - position)));
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Loads the snapshot of a source file, if there is one
+     * A snapshot that cannot be read, or whose images have changed, is deleted
+     *
+     * @param key          the key of the source file
+     * @param presentation the presentation to load into
+     * @param progress     the progress to report to
+     * @return true if the snapshot was loaded
+     */
+    boolean load(Key key, Presentation presentation, Progress progress) {
+        Path snapshot = directory.resolve(key.name());
+        if (!Files.isRegularFile(snapshot)) {
+            return false;
+        }
+        try {
+            if (!imagesUnchanged(snapshot)) {
+                delete(snapshot);
+                return false;
+            }
+            Files.setLastModifiedTime(snapshot, FileTime.fromMillis(System.currentTimeMillis()));
+            new BinaryReadAccessor().loadFile(presentation, snapshot.toString(), progress);
+            return true;
+        } catch (AccessorException | IOException e) {
+            logger.info("Error loading snapshot: " + e.getMessage());
+            delete(snapshot);
+            return false;
+        }
+    }
+
+    /**
+     * Checks that the images of a snapshot are the ones its dimensions were taken from
+     *
+     * @param snapshot the snapshot
+     * @return true if every image has its recorded size and modification time
+     * @throws IOException if the list of images cannot be read
+     */
+    private static boolean imagesUnchanged(Path snapshot) throws IOException {
+        Path images = imagesOf(snapshot);
+        if (!Files.isRegularFile(images)) {
+            return false;
+        }
+        for (String line : Files.readAllLines(images, StandardCharsets.UTF_8)) {
+            int tab = line.indexOf('\t');
+            if (tab < 0 || !BitmapItem.readImageStamp(Paths.get(line.substring(tab + 1))).equals(line.substring(0, tab))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stores the snapshot of a source file in the background
+     * The slides are the ones the load produced; the snapshot is dropped if
+     * they are changed before it is written
+     *
+     * @param key    the key of the source file
+     * @param source the source file
+     * @param title  the title of the presentation
+     * @param slides the slides parsed from the source
+     */
+    void storeLater(Key key, Path source, String title, List<Slide> slides) {
+        int[] versions = new int[slides.size()];
+        for (int number = 0; number < versions.length; number++) {
+            versions[number] = slides.get(number).getVersion();
+        }
+        writer.execute(() -> store(key, source, title, slides, versions));
+    }
+
+    /**
+     * Stores the snapshot of a source file and deletes the least recently used
+     * snapshots that do not fit. Nothing is stored if the source has changed
+     * since its key was computed, or a slide since it was parsed.
+     *
+     * @param key      the key of the source file
+     * @param source   the source file
+     * @param title    the title of the presentation
+     * @param slides   the slides parsed from the source
+     * @param versions the content version of each slide when it was parsed
+     */
+    private void store(Key key, Path source, String title, List<Slide> slides, int[] versions) {
+        Path snapshot = directory.resolve(key.name());
+        try {
+            if (Files.size(source) != key.size() || !Files.getLastModifiedTime(source).equals(key.lastModified())) {
+                return;
+            }
+            Files.createDirectories(directory);
+            new BinaryWriteAccessor().saveSlides(title, slides, snapshot.toString());
+            for (int number = 0; number < versions.length; number++) {
+                if (slides.get(number).getVersion() != versions[number]) {
+                    delete(snapshot);
+                    return;
+                }
+            }
+            Map<String, String> images = new LinkedHashMap<>();
+            for (Slide slide : slides) {
+                for (SlideItem slideItem : slide.getSlideItems()) {
+                    if (slideItem instanceof BitmapItem bitmapItem) {
+                        images.put(bitmapItem.getImageFile().toString(), bitmapItem.getImageStamp());
+                    }
+                }
+            }
+            AtomicFiles.replace(imagesOf(snapshot).toString(), file -> {
+                List<String> lines = new ArrayList<>();
+                images.forEach((image, stamp) -> lines.add(stamp + "\t" + image));
+                Files.write(file, lines, StandardCharsets.UTF_8);
+            });
+            trim();
+        } catch (IOException e) {
+            logger.info("Error storing snapshot: " + e.getMessage());
+            delete(snapshot);
+        }
+    }
+
+    /**
+     * Deletes the least recently used snapshots until the rest fit in the size limit
+     * The newest snapshot is always kept
+     *
+     * @throws IOException if the directory cannot be listed
+     */
+    private void trim() throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + BinaryFormat.EXTENSION)) {
+            for (Path file : files) {
+                snapshots.add(file);
+                total += Files.size(file);
+            }
+        }
+        snapshots.sort(Comparator.comparing(SnapshotCache::lastUsed));
+        for (int i = 0; i < snapshots.size() - 1 && total > maxBytes; i++) {
+            total -= Files.size(snapshots.get(i));
+            delete(snapshots.get(i));
+        }
+    }
+
+    /**
+     * get the time a snapshot was last used
+     *
+     * @param snapshot the snapshot
+     * @return the modification time, which is updated when the snapshot is loaded
+     */
+    private static FileTime lastUsed(Path snapshot) {
+        try {
+            return Files.getLastModifiedTime(snapshot);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * get the list of images that belongs to a snapshot
+     *
+     * @param snapshot the snapshot
+     * @return the path of the list
+     */
+    private static Path imagesOf(Path snapshot) {
+        return snapshot.resolveSibling(snapshot.getFileName() + IMAGES);
+    }
+
+    /**
+     * Deletes a snapshot and its list of images
+     *
+     * @param snapshot the snapshot
+     */
+    private static void delete(Path snapshot) {
+        try {
+            Files.deleteIfExists(snapshot);
+            Files.deleteIfExists(imagesOf(snapshot));
+        } catch (IOException e) {
+            logger.info("Error deleting snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Creates the hash that names the snapshots
+     *
+     * @return The message digest
+     */
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(BundleFormat.DIGEST);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(BundleFormat.DIGEST + " is not available", e);
+        }
+    }
+
+    /**
+     * Identifies a version of a source file
+     *
+     * @param name         the file name of the snapshot
+     * @param size         the size of the source
+     * @param lastModified the modification time of the source
+     */
+    record Key(String name, long size, FileTime lastModified) {
+    }
+}
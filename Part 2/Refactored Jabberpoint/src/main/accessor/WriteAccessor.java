@@ -8,6 +8,8 @@ import java.io.IOException;
 /**
  * This Accessor is an interface for writing data
  * Subclasses should implement the save method
+ * Accessors that can tell how far they are should also implement
+ * the save method with progress; saveFileAsync saves on a background thread.
  *
  * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
  * @version 1.61 2024/01/10 Carla Redmond
@@ -25,6 +27,32 @@ public interface WriteAccessor {
      */
     void saveFile(Presentation p, String fn) throws AccessorException, IOException;
 
+    /**
+     * Saves the presentation to a file, reporting progress
+     * By default the slides are counted once the presentation has been saved
+     *
+     * @param p Presentation to save
+     * @param fn String filename to save to
+     * @param progress the progress to report to
+     * @throws AccessorException if the file cannot be written to
+     * @throws IOException if the file cannot be written to
+     */
+    default void saveFile(Presentation p, String fn, Progress progress) throws AccessorException, IOException {
+        saveFile(p, fn);
+        progress.addSlides(p.getSize());
+    }
+
+    /**
+     * Saves the presentation to a file on a background thread
+     *
+     * @param p Presentation to save
+     * @param fn String filename to save to
+     * @param listener the listener to report progress to, may be null
+     * @return the running save, which can be cancelled
+     */
+    default AccessorTask saveFileAsync(Presentation p, String fn, ProgressListener listener) {
+        return new AccessorTask("presentation-saver", new Progress(listener), progress -> saveFile(p, fn, progress)).start();
+    }
 
 }
 
@@ -4,23 +4,39 @@ import main.exception.AccessorException;
 import main.model.BitmapItem;
 import main.model.Presentation;
 import main.model.Slide;
+import main.model.SlideItem;
 import main.model.TextItem;
 import main.util.TextEnums;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import java.io.File;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 /**
  * This Accessor makes it possible to read XML data
+ * The file is read as a stream; slides and items are created
+ * as their elements are read, so no document tree is kept in memory.
+ * Parsing is sequential, but turning the parsed elements into slides
+ * (reading image headers) is spread over a fork-join pool; slides are
+ * appended to the presentation in document order.
+ * A deck that has been read completely is kept in the snapshot cache;
+ * while the file does not change it is opened from the snapshot instead.
  *
  * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
  * @version 1.61 2024/01/10 Carla Redmond
@@ -28,17 +44,27 @@ import java.util.logging.Logger;
 public class XMLReadAccessor implements ReadAccessor {
 
     private static final Logger logger = Logger.getLogger(XMLReadAccessor.class.getName()); // Logger
+    private static final int DEFAULT_PARALLELISM = Integer.getInteger("jabberpoint.loadParallelism",
+            Runtime.getRuntime().availableProcessors()); // Default number of slide building threads
+    private static final int SLIDES_IN_FLIGHT_PER_THREAD = 8; // Parsed slides waiting to be built, per thread
+    private final int parallelism; // The number of slide building threads
+
+    /**
+     * Constructor for XMLReadAccessor
+     * The parallelism is taken from the jabberpoint.loadParallelism property,
+     * or the number of processors
+     */
+    public XMLReadAccessor() {
+        this(DEFAULT_PARALLELISM);
+    }
 
     /**
-     * Gets the title
+     * Constructor for XMLReadAccessor
      *
-     * @param element the element
-     * @param tagName the tag name
-     * @return the title
+     * @param parallelism the number of threads that build slides, 1 builds them on the reading thread
      */
-    private String getTitle(Element element, String tagName) {
-        NodeList titles = element.getElementsByTagName(tagName);
-        return titles.item(0).getTextContent();
+    public XMLReadAccessor(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
     }
 
     /**
@@ -50,91 +76,216 @@ public class XMLReadAccessor implements ReadAccessor {
      * @throws IOException if the file cannot be read
      */
     public void loadFile(Presentation presentation, String filename) throws AccessorException, IOException {
+        loadFile(presentation, filename, new Progress());
+    }
+
+    /**
+     * Loads the presentation from a file, reporting the bytes read and the slides and images produced
+     *
+     * @param presentation Presentation to load into
+     * @param filename String filename to load from
+     * @param progress the progress to report to
+     * @throws AccessorException if the file is not a well-formed presentation
+     * @throws IOException if the file cannot be read, or the load was interrupted
+     */
+    @Override
+    public void loadFile(Presentation presentation, String filename, Progress progress) throws AccessorException, IOException {
+        Path source = Paths.get(filename);
+        SnapshotCache snapshots = SnapshotCache.getShared();
+        SnapshotCache.Key key = null;
         try {
-            Document document = parseXmlFile(filename);
-            processPresentation(presentation, document);
-        } catch (ParserConfigurationException pce) {
-            logger.info("Error configuring parser: " + pce.getMessage());
-        } catch (SAXException sax) {
-            logger.info("Error parsing file: " + sax.getMessage());
+            key = snapshots == null ? null : snapshots.keyOf(source);
         } catch (IOException iox) {
-            logger.info("Error loading file: " + iox.getMessage());
+            logger.info("Error reading snapshot key: " + iox.getMessage());
+        }
+        if (key != null && snapshots.load(key, presentation, progress)) {
+            return;
+        }
+        try (InputStream input = new BufferedInputStream(new ProgressInputStream(new FileInputStream(filename), progress))) {
+            progress.setTotalBytes(Files.size(source));
+            loadStream(presentation, input, progress, null);
+        }
+        if (key != null) {
+            List<Slide> slides = new ArrayList<>();
+            for (int number = 0; number < presentation.getSize(); number++) {
+                slides.add(presentation.getSlide(number));
+            }
+            snapshots.storeLater(key, source, presentation.getTitle(), slides);
         }
     }
 
     /**
-     * Initializes the XML parser
+     * Loads the presentation from a stream
+     * The slides read before a failure stay in the presentation, so the
+     * caller decides whether to keep a partial load
      *
-     * @return the document builder
-     * @throws ParserConfigurationException if the parser cannot be configured
+     * @param presentation Presentation to load into
+     * @param input the XML to load from
+     * @param progress the progress to report the slides and images to
+     * @param imageRoot the directory the image paths are resolved against, null to use them as written
+     * @throws AccessorException if the XML cannot be parsed
+     * @throws InterruptedIOException if the load was interrupted before the whole document was read
      */
-    private DocumentBuilder initializeXmlParser() throws ParserConfigurationException {
-        DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-        dbFactory.setFeature("http://xml.org/sax/features/external-general-entities", false);
-        dbFactory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
-        dbFactory.setXIncludeAware(false);
-        dbFactory.setExpandEntityReferences(false);
-        return dbFactory.newDocumentBuilder();
+    protected void loadStream(Presentation presentation, InputStream input, Progress progress, Path imageRoot)
+            throws AccessorException, InterruptedIOException {
+        ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        boolean complete;
+        try {
+            XMLStreamReader reader = initializeXmlParser().createXMLStreamReader(input);
+            try {
+                complete = processPresentation(presentation, reader, new SlideAssembler(presentation, pool, progress, imageRoot));
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException xse) {
+            throw new AccessorException("Error parsing file: " + xse.getMessage());
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+        if (!complete) {
+            throw new InterruptedIOException("Load cancelled");
+        }
     }
 
     /**
-     * Parses an XML file
+     * Initializes the XML parser
+     * DTDs and external entities are not processed
      *
-     * @param filename String filename to load from
-     * @return the document
-     * @throws ParserConfigurationException if the parser cannot be configured
-     * @throws SAXException if the file cannot be parsed
-     * @throws IOException if the file cannot be read
+     * @return the input factory
      */
-    private Document parseXmlFile(String filename) throws ParserConfigurationException, SAXException, IOException {
-        DocumentBuilder builder = initializeXmlParser();
-        return builder.parse(new File(filename));
+    private XMLInputFactory initializeXmlParser() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
     }
 
     /**
      * Processes the presentation
+     * The first showtitle element is the title; every slide element is a slide.
+     * Reading stops early when the loading thread is interrupted.
      *
      * @param presentation the presentation
-     * @param document the document
+     * @param reader the stream reader
+     * @param assembler builds the parsed slides and appends them in order
+     * @return true if the whole document was read
+     * @throws XMLStreamException if the file cannot be parsed
      */
-    private void processPresentation(Presentation presentation, Document document) {
-        Element doc = document.getDocumentElement();
-        presentation.setTitle(getTitle(doc, main.util.TextEnums.SHOWTITLE.getName()));
-
-        NodeList slides = doc.getElementsByTagName(main.util.TextEnums.SLIDE.getName());
-        for (int slideNumber = 0; slideNumber < slides.getLength(); slideNumber++) {
-            processSlide(presentation, (Element) slides.item(slideNumber));
+    private boolean processPresentation(Presentation presentation, XMLStreamReader reader,
+                                     SlideAssembler assembler) throws XMLStreamException {
+        boolean hasTitle = false;
+        while (reader.hasNext() && !Thread.currentThread().isInterrupted()) {
+            if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            String name = reader.getLocalName();
+            if (!hasTitle && TextEnums.SHOWTITLE.getName().equals(name)) {
+                presentation.setTitle(readText(reader));
+                hasTitle = true;
+            } else if (TextEnums.SLIDE.getName().equals(name)) {
+                assembler.submit(processSlide(reader));
+            }
         }
+        if (Thread.currentThread().isInterrupted()) {
+            assembler.cancel();
+            return false;
+        }
+        assembler.finish();
+        return !Thread.currentThread().isInterrupted();
     }
 
     /**
      * Processes a slide
+     * The reader is positioned on the start of the slide and is left on its end.
+     * Only the text of the elements is collected; the slide is built later.
      *
-     * @param presentation the presentation
-     * @param xmlSlide the xml slide
+     * @param reader the stream reader
+     * @return the parsed slide
+     * @throws XMLStreamException if the file cannot be parsed
+     */
+    private ParsedSlide processSlide(XMLStreamReader reader) throws XMLStreamException {
+        String title = null;
+        List<String[]> items = new ArrayList<>();
+        boolean hasTitle = false;
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (event == XMLStreamConstants.START_ELEMENT) {
+                String name = reader.getLocalName();
+                if (!hasTitle && TextEnums.SLIDETITLE.getName().equals(name)) {
+                    title = readText(reader);
+                    hasTitle = true;
+                } else if (TextEnums.ITEM.getName().equals(name)) {
+                    String kind = reader.getAttributeValue(null, TextEnums.KIND.getName());
+                    String level = reader.getAttributeValue(null, TextEnums.LEVEL.getName());
+                    items.add(new String[]{kind, level, readText(reader)});
+                } else {
+                    depth++;
+                }
+            }
+        }
+        return new ParsedSlide(title, items);
+    }
+
+    /**
+     * Builds a slide from its parsed elements
+     *
+     * @param parsed the parsed slide
+     * @param imageRoot the directory the image paths are resolved against, null to use them as written
+     * @return the slide
      */
-    private void processSlide(Presentation presentation, Element xmlSlide) {
+    private Slide buildSlide(ParsedSlide parsed, Path imageRoot) {
         Slide slide = new Slide();
-        slide.setTitle(getTitle(xmlSlide, TextEnums.SLIDETITLE.getName()));
-        presentation.append(slide);
+        slide.setTitle(parsed.title());
+        for (String[] item : parsed.items()) {
+            loadSlideItem(slide, item[0], item[1], item[2], imageRoot);
+        }
+        return slide;
+    }
 
-        NodeList slideItems = xmlSlide.getElementsByTagName(TextEnums.ITEM.getName());
-        for (int itemNumber = 0; itemNumber < slideItems.getLength(); itemNumber++) {
-            Element item = (Element) slideItems.item(itemNumber);
-            loadSlideItem(slide, item);
+    /**
+     * Reads all text inside the current element
+     * The reader is positioned on the start of the element and is left on its end
+     *
+     * @param reader the stream reader
+     * @return the text content of the element
+     * @throws XMLStreamException if the file cannot be parsed
+     */
+    private String readText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT -> depth++;
+                case XMLStreamConstants.END_ELEMENT -> depth--;
+                case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA,
+                        XMLStreamConstants.SPACE, XMLStreamConstants.ENTITY_REFERENCE ->
+                        text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                default -> {
+                    //comments and processing instructions carry no text
+                }
+            }
         }
+        return text.toString();
     }
 
     /**
      * Loads a slide item
      *
      * @param slide the slide to load into
-     * @param item the item to load
+     * @param kind the kind attribute of the item
+     * @param leveltext the level attribute of the item
+     * @param content the text content of the item
+     * @param imageRoot the directory the image paths are resolved against, null to use them as written
      */
-    protected void loadSlideItem(Slide slide, Element item) {
+    protected void loadSlideItem(Slide slide, String kind, String leveltext, String content, Path imageRoot) {
         int level = 1; // default
-        NamedNodeMap attributes = item.getAttributes();
-        String leveltext = attributes.getNamedItem(TextEnums.LEVEL.getName()).getTextContent();
         if (leveltext != null) {
             try {
                 level = Integer.parseInt(leveltext);
@@ -142,16 +293,147 @@ public class XMLReadAccessor implements ReadAccessor {
                 logger.info("Error formatting number: " + nfe.getMessage());
             }
         }
-        String type = attributes.getNamedItem(TextEnums.KIND.getName()).getTextContent();
-        if (TextEnums.TEXT.getName().equals(type)) {
-            slide.appendText(new TextItem(level, item.getTextContent()));
+        if (TextEnums.TEXT.getName().equals(kind)) {
+            slide.appendText(new TextItem(level, content));
         } else {
-            if (TextEnums.IMAGE.getName().equals(type)) {
-                slide.appendText(new BitmapItem(level, item.getTextContent()));
+            if (TextEnums.IMAGE.getName().equals(kind)) {
+                slide.appendText(createBitmapItem(level, content, imageRoot));
             } else {
                 logger.info("Unknown element type");
             }
         }
     }
 
+    /**
+     * Creates the item for an image element
+     * In a bundle the image is read from its entry, resolved against the root of the bundle
+     *
+     * @param level the level of the item
+     * @param imagePath the path to the image, as written in the file
+     * @param imageRoot the directory the image path is resolved against, null to use it as written
+     * @return the bitmap item
+     */
+    protected BitmapItem createBitmapItem(int level, String imagePath, Path imageRoot) {
+        if (imageRoot == null) {
+            return new BitmapItem(level, imagePath);
+        }
+        return new BitmapItem(level, imagePath, imageRoot.resolve(imagePath));
+    }
+
+    /**
+     * The text of a slide element, before any items are created
+     *
+     * @param title the title of the slide, may be null
+     * @param items the kind, level and text of each item
+     */
+    private record ParsedSlide(String title, List<String[]> items) {
+    }
+
+    /**
+     * Builds parsed slides on the pool and appends them to the presentation
+     * in document order. Slides are appended as soon as all slides before
+     * them are built, and parsing waits when too many slides are unbuilt.
+     */
+    private class SlideAssembler {
+        private final Presentation presentation; // The presentation to append to
+        private final ForkJoinPool pool; // The pool to build on, null to build on the reading thread
+        private final Progress progress; // The progress to report the appended slides to
+        private final Path imageRoot; // The directory the image paths are resolved against, null to use them as written
+        private final ArrayDeque<Future<Slide>> building = new ArrayDeque<>(); // Slides being built, in order
+
+        /**
+         * Constructor for SlideAssembler
+         *
+         * @param presentation the presentation to append to
+         * @param pool the pool to build on, null to build on the reading thread
+         * @param progress the progress to report the appended slides to
+         * @param imageRoot the directory the image paths are resolved against, null to use them as written
+         */
+        SlideAssembler(Presentation presentation, ForkJoinPool pool, Progress progress, Path imageRoot) {
+            this.presentation = presentation;
+            this.pool = pool;
+            this.progress = progress;
+            this.imageRoot = imageRoot;
+        }
+
+        /**
+         * Builds a parsed slide and appends the slides that are ready
+         *
+         * @param parsed the parsed slide
+         */
+        void submit(ParsedSlide parsed) {
+            if (pool == null) {
+                try {
+                    append(buildSlide(parsed, imageRoot));
+                } catch (RuntimeException e) {
+                    appendEmpty(e);
+                }
+                return;
+            }
+            building.add(pool.submit(() -> buildSlide(parsed, imageRoot)));
+            while (!building.isEmpty()
+                    && (building.peek().isDone() || building.size() > parallelism * SLIDES_IN_FLIGHT_PER_THREAD)) {
+                appendNext();
+            }
+        }
+
+        /**
+         * Waits for the remaining slides and appends them
+         */
+        void finish() {
+            while (!building.isEmpty()) {
+                appendNext();
+            }
+        }
+
+        /**
+         * Drops the slides that have not been appended
+         */
+        void cancel() {
+            for (Future<Slide> future : building) {
+                future.cancel(true);
+            }
+            building.clear();
+        }
+
+        /**
+         * Waits for the oldest slide and appends it
+         */
+        private void appendNext() {
+            try {
+                append(building.remove().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel();
+            } catch (ExecutionException e) {
+                appendEmpty(e.getCause());
+            }
+        }
+
+        /**
+         * Appends an empty slide in place of one that could not be built
+         * The slides after it keep their numbers, as for a damaged slide in a binary file
+         *
+         * @param cause the reason the slide could not be built
+         */
+        private void appendEmpty(Throwable cause) {
+            logger.info("Error building slide " + presentation.getSize() + ": " + cause);
+            append(new Slide());
+        }
+
+        /**
+         * Appends a slide and reports it with its images
+         *
+         * @param slide the slide
+         */
+        private void append(Slide slide) {
+            presentation.append(slide);
+            for (SlideItem slideItem : slide.getSlideItems()) {
+                if (slideItem instanceof BitmapItem) {
+                    progress.addImages(1);
+                }
+            }
+            progress.addSlides(1);
+        }
+    }
 }
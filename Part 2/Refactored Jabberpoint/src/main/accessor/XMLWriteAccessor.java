@@ -3,14 +3,24 @@ package main.accessor;
 import main.exception.AccessorException;
 import main.model.*;
 
-import java.io.FileWriter;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.logging.Logger;
 
 /**
  * This Accessor makes it possible to write XML data
+ * The file is replaced atomically, so a failed save leaves the old file.
+ * The XML of each slide is kept with the version of the slide it was
+ * made from, so saving again only formats the slides that have changed.
  *
  * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
  * @version 1.61 2024/01/10 Carla Redmond
@@ -18,6 +28,7 @@ import java.util.logging.Logger;
 public class XMLWriteAccessor implements WriteAccessor {
 
     private static final Logger logger = Logger.getLogger(XMLWriteAccessor.class.getName()); // Logger
+    private final Map<Slide, Fragment> fragments = Collections.synchronizedMap(new WeakHashMap<>()); // The XML of the slides written before
 
     /**
      * Saves the presentation to a file
@@ -28,10 +39,47 @@ public class XMLWriteAccessor implements WriteAccessor {
      * @throws IOException if the file cannot be written to
      */
     public void saveFile(Presentation presentation, String filename) throws AccessorException, IOException {
-        try (PrintWriter out = new PrintWriter(new FileWriter(filename))) {
-            writePresentationStart(out, presentation);
-            writeSlidesInPresentation(out, presentation);
-            out.println("</presentation>");
+        saveFile(presentation, filename, new Progress());
+    }
+
+    /**
+     * Saves the presentation to a file, reporting the slides written
+     * Saves through one accessor are done one at a time
+     *
+     * @param presentation Presentation to save
+     * @param filename String filename to save to
+     * @param progress the progress to report to
+     * @throws AccessorException if the file cannot be written to
+     * @throws IOException if the file cannot be written to, or the save was interrupted
+     */
+    @Override
+    public synchronized void saveFile(Presentation presentation, String filename, Progress progress)
+            throws AccessorException, IOException {
+        AtomicFiles.replace(filename, file -> {
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+                 PrintWriter out = new PrintWriter(writer)) {
+                writePresentation(out, presentation, filename, progress);
+            }
+        });
+    }
+
+    /**
+     * Writes the presentation
+     *
+     * @param out The PrintWriter, flushed but not closed
+     * @param presentation The presentation
+     * @param filename The name of the file, for the error message
+     * @param progress The progress to report the slides written to
+     * @throws IOException if the presentation cannot be written, or the save was interrupted
+     */
+    protected void writePresentation(PrintWriter out, Presentation presentation, String filename,
+                                     Progress progress) throws IOException {
+        writePresentationStart(out, presentation);
+        writeSlidesInPresentation(out, presentation, progress);
+        out.println("</presentation>");
+        out.flush();
+        if (out.checkError()) {
+            throw new IOException("Error writing " + filename);
         }
     }
 
@@ -45,9 +93,9 @@ public class XMLWriteAccessor implements WriteAccessor {
         out.println("<?xml version=\"1.0\"?>");
         out.println("<!DOCTYPE presentation SYSTEM \"jabberpoint.dtd\">");
         out.println("<presentation>");
-        out.print("<showtitle>");
-        out.print(presentation.getTitle());
-        out.println("</showtitle>");
+        if (presentation.getTitle() != null) {
+            out.println("<showtitle>" + escape(presentation.getTitle()) + "</showtitle>");
+        }
     }
 
     /**
@@ -55,12 +103,39 @@ public class XMLWriteAccessor implements WriteAccessor {
      *
      * @param out The PrintWriter
      * @param presentation The presentation
+     * @param progress The progress to report the slides written to
+     * @throws InterruptedIOException if the save was interrupted
      */
-    private void writeSlidesInPresentation(PrintWriter out, Presentation presentation) {
+    private void writeSlidesInPresentation(PrintWriter out, Presentation presentation,
+                                           Progress progress) throws InterruptedIOException {
+        progress.setTotalSlides(presentation.getSize());
         for (int slideNumber = 0; slideNumber < presentation.getSize(); slideNumber++) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Save cancelled");
+            }
             Slide slide = presentation.getSlide(slideNumber);
-            writeSlideTitle(out, slide);
+            out.print(getFragment(slide));
+            progress.addSlides(1);
+        }
+    }
+
+    /**
+     * get the XML of a slide
+     * The XML written before is reused if the slide has not changed since
+     *
+     * @param slide The slide
+     * @return The XML of the slide
+     */
+    private String getFragment(Slide slide) {
+        int version = slide.getVersion();
+        Fragment fragment = fragments.get(slide);
+        if (fragment == null || fragment.version() != version) {
+            StringWriter xml = new StringWriter();
+            writeSlideTitle(new PrintWriter(xml), slide);
+            fragment = new Fragment(version, xml.toString());
+            fragments.put(slide, fragment);
         }
+        return fragment.xml();
     }
 
     /**
@@ -71,7 +146,9 @@ public class XMLWriteAccessor implements WriteAccessor {
      */
     private void writeSlideTitle(PrintWriter out, Slide slide) {
         out.println("<slide>");
-        out.println("<title>" + slide.getTitle() + "</title>");
+        if (slide.getTitle() != null) {
+            out.println("<title>" + escape(slide.getTitle()) + "</title>");
+        }
         writeSlideItems(out, slide);
         out.println("</slide>");
     }
@@ -99,14 +176,53 @@ public class XMLWriteAccessor implements WriteAccessor {
         out.print("<item kind=");
         if (slideItem instanceof TextItem textItem) {
             out.print("\"text\" level=\"" + textItem.getLevel() + "\">");
-            out.print(textItem.getText());
+            out.print(escape(textItem.getText()));
         } else if (slideItem instanceof BitmapItem bitmapItem) {
             out.print("\"image\" level=\"" + bitmapItem.getLevel() + "\">");
-            out.print(bitmapItem.imagePath);
+            out.print(escape(imageReference(bitmapItem)));
         } else {
             logger.info("Ignoring unknown SlideItem type");
         }
         out.println("</item>");
     }
-}
 
+    /**
+     * get the path that is written for an image
+     *
+     * @param bitmapItem The image item
+     * @return The path of the image
+     */
+    protected String imageReference(BitmapItem bitmapItem) {
+        return bitmapItem.imagePath;
+    }
+
+    /**
+     * Escapes the characters that XML gives a meaning
+     *
+     * @param text The text
+     * @return The escaped text
+     */
+    private String escape(String text) {
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&' -> escaped.append("&amp;");
+                case '<' -> escaped.append("&lt;");
+                case '>' -> escaped.append("&gt;");
+                case '"' -> escaped.append("&quot;");
+                default -> escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * The XML of a slide
+     *
+     * @param version The version of the slide the XML was made from
+     * @param xml The XML
+     */
+    private record Fragment(int version, String xml) {
+    }
+}
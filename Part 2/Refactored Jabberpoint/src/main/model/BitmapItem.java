@@ -1,17 +1,34 @@
 package main.model;
 
+import main.util.ImageCache;
+import main.util.ImageDecoder;
 import main.util.Style;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
+import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.awt.image.ImageObserver;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
 /**
  * Class for drawing Bitmap images
+ * The image is decoded in the background the first time it is drawn;
+ * until then a placeholder of the right size is shown.
+ * The image is decoded at the lowest resolution the current scale
+ * allows, and only as far as it can be visible in the area the slide
+ * is drawn in.
  *
  * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
  * @version 1.61 2024/01/10 Carla Redmond
@@ -19,8 +36,22 @@ import java.util.logging.Logger;
 
 public class BitmapItem extends SlideItem {
     private static final Logger logger = Logger.getLogger(BitmapItem.class.getName()); // Logger
+    private static final Color PLACEHOLDER_COLOR = new Color(230, 230, 230); // Fill of the placeholder
+    private static final Color PLACEHOLDER_BORDER = Color.lightGray; // Border of the placeholder
+    private static final int MAX_SUBSAMPLING = 8; // The coarsest subsampling used for small scales
+    private static final int REGION_STEP = 512; // Visible parts are rounded up to a multiple of this many image pixels
+    private static final Map<GraphicsConfiguration, Integer> devices = new WeakHashMap<>(); // A number for each device configuration drawn to
+    private static int nextDevice = 0; // The number of the next device configuration
     public final String imagePath; // The path to the image
-    private BufferedImage bufferedImage; // The image
+    private final Path imageFile; // The image file the path refers to
+    private final Dimension imageSize; // The image dimensions read from the header
+    private final List<ImageObserver> observers = new CopyOnWriteArrayList<>(); // Observers waiting for the image
+    private final String cacheKey; // The canonical path, the key in the image cache
+    private final String imageStamp; // The size and modification time of the image file
+    private CompletableFuture<BufferedImage> pendingImage; // The running decode, if any
+    private int pendingSubsampling; // The subsampling of the running decode
+    private Dimension pendingPart; // The part of the running decode, null for the whole image
+    private Dimension lastPart; // The part last asked for, null for the whole image
 
     /**
      * Constructor for BitmapItem
@@ -29,26 +60,356 @@ public class BitmapItem extends SlideItem {
      * @param imagePath The path to the image
      */
     public BitmapItem(int level, String imagePath) {
+        this(level, imagePath, new File(imagePath).toPath());
+    }
+
+    /**
+     * Constructor for BitmapItem
+     * The image is read from the given file, which may be on another file system
+     * such as a zip file; the path is what is saved with the presentation
+     *
+     * @param level     The level of this item
+     * @param imagePath The path to the image, as saved with the presentation
+     * @param imageFile The image file
+     */
+    public BitmapItem(int level, String imagePath, Path imageFile) {
+        this(level, imagePath, imageFile, readImageSize(imageFile));
+    }
+
+    /**
+     * Constructor for BitmapItem
+     * The image dimensions are known, for example from a saved presentation,
+     * so the image header is not read
+     *
+     * @param level     The level of this item
+     * @param imagePath The path to the image, as saved with the presentation
+     * @param imageFile The image file
+     * @param imageSize The image dimensions
+     */
+    public BitmapItem(int level, String imagePath, Path imageFile, Dimension imageSize) {
         super(level);
         this.imagePath = imagePath;
-        loadImage(imagePath);
+        this.imageFile = imageFile;
+        this.imageSize = new Dimension(imageSize);
+        this.cacheKey = cacheKey(imageFile);
+        this.imageStamp = readImageStamp(imageFile);
     }
 
     /**
-     * Loads the image
+     * Resolves the key of the image in the image cache, so that different spellings
+     * of the same path share one cache entry
+     * Files on the default file system are keyed by canonical path, others by URI
      *
-     * @param imagePath The path to the image
+     * @param imageFile The image file
+     * @return the cache key
      */
-    private void loadImage(String imagePath) {
+    private static String cacheKey(Path imageFile) {
+        if (imageFile.getFileSystem() != FileSystems.getDefault()) {
+            return imageFile.toUri().toString();
+        }
+        File file = imageFile.toFile();
         try {
-            bufferedImage = ImageIO.read(new File(imagePath));
-            if (bufferedImage == null) {
-                throw new IOException("Unsupported image file format or corrupted file.");
-            }
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            return file.getAbsolutePath();
+        }
+    }
+
+    /**
+     * Reads the size and modification time of the image file, so that an image
+     * replaced under the same name counts as a change of the slide
+     *
+     * @param imageFile The image file
+     * @return the size and modification time, empty if the file cannot be read
+     */
+    public static String readImageStamp(Path imageFile) {
+        try {
+            return Files.size(imageFile) + ":" + Files.getLastModifiedTime(imageFile).toMillis();
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    /**
+     * get the size and modification time the image file had when the item was made
+     *
+     * @return the image stamp, empty if the file could not be read
+     */
+    public String getImageStamp() {
+        return imageStamp;
+    }
+
+    /**
+     * Reads the image dimensions from the image header
+     *
+     * @param imageFile The image file
+     * @return the image dimensions, empty if the header cannot be read
+     */
+    private static Dimension readImageSize(Path imageFile) {
+        try {
+            return ImageDecoder.readDimensions(imageFile);
         } catch (IOException e) {
-            bufferedImage = null;
             logger.info("Error loading image: " + e.getMessage());
+            return new Dimension(0, 0);
+        }
+    }
+
+    /**
+     * get the image file
+     *
+     * @return the file the image is read from
+     */
+    public Path getImageFile() {
+        return imageFile;
+    }
+
+    /**
+     * get the image dimensions
+     *
+     * @return the dimensions read from the image header, empty if it could not be read
+     */
+    public Dimension getImageSize() {
+        return new Dimension(imageSize);
+    }
+
+    /**
+     * Checks whether the image size is unknown, so there is nothing to decode or draw
+     *
+     * @return true if the image header could not be read
+     */
+    private boolean isEmpty() {
+        return imageSize.width <= 0 || imageSize.height <= 0;
+    }
+
+    /**
+     * get the part of the image that can be visible when the slide is drawn in an area
+     * The image starts at its indent and leading, so it shows at most the rest of
+     * the area, scaled back to image pixels; the items above it are not counted. The
+     * part is rounded up, so that resizing the area a little decodes nothing new.
+     *
+     * @param area    The area the slide is drawn in
+     * @param scale   The scale of the slide in the area
+     * @param myStyle The style of the item
+     * @return the width and height of the part from the top left corner, or null for the whole image
+     */
+    public Dimension getVisiblePart(Rectangle area, float scale, Style myStyle) {
+        if (scale <= 0 || isEmpty()) {
+            return null;
+        }
+        int width = roundUpToRegionStep((area.width - myStyle.getIndent() * scale) / scale);
+        int height = roundUpToRegionStep((area.height - myStyle.getLeading() * scale) / scale);
+        if (width >= imageSize.width && height >= imageSize.height) {
+            return null;
+        }
+        return new Dimension(Math.min(width, imageSize.width), Math.min(height, imageSize.height));
+    }
+
+    /**
+     * Rounds a number of image pixels up to a multiple of the region step
+     *
+     * @param pixels The number of pixels
+     * @return the rounded number, at least one step
+     */
+    private static int roundUpToRegionStep(float pixels) {
+        return Math.max(1, (int) Math.ceil(pixels / REGION_STEP)) * REGION_STEP;
+    }
+
+    /**
+     * Starts decoding the image at full resolution if it is not in the image cache
+     * The observer is notified with ALLBITS once the image is available
+     *
+     * @param observer The image observer to notify, may be null
+     * @return a future that completes with the image, or with null if it cannot be loaded
+     */
+    public CompletableFuture<BufferedImage> loadImage(ImageObserver observer) {
+        return loadImage(observer, 1, null);
+    }
+
+    /**
+     * Starts decoding the whole image at the resolution needed for a scale
+     * The observer is notified with ALLBITS once the image is available
+     *
+     * @param observer The image observer to notify, may be null
+     * @param scale    The scale the image will be drawn at
+     * @return a future that completes with the image, or with null if it cannot be loaded
+     */
+    public CompletableFuture<BufferedImage> loadImage(ImageObserver observer, float scale) {
+        return loadImage(observer, scale, null);
+    }
+
+    /**
+     * Starts decoding part of the image at the resolution needed for a scale
+     * The observer is notified with ALLBITS once the image is available
+     *
+     * @param observer The image observer to notify, may be null
+     * @param scale    The scale the image will be drawn at
+     * @param part     The part that can be visible, see getVisiblePart, null for the whole image
+     * @return a future that completes with the image, or with null if it cannot be loaded
+     */
+    public CompletableFuture<BufferedImage> loadImage(ImageObserver observer, float scale, Dimension part) {
+        int subsampling = subsamplingFor(scale);
+        Decode available = findDecoded(subsampling, part);
+        if (available != null && available.subsampling() <= subsampling) {
+            return CompletableFuture.completedFuture(ImageCache.getShared().getIfPresent(available.key()));
+        }
+        return loadImage(observer, subsampling, part);
+    }
+
+    /**
+     * Decodes part of the image at the resolution needed for a scale on the calling thread
+     * This is for threads that have nothing else to do until the image is
+     * there, such as the workers of an export, so they are not limited by the
+     * decoder pool. A decode of the image that is already running is waited for.
+     *
+     * @param scale The scale the image will be drawn at
+     * @param part  The part that can be visible, see getVisiblePart, null for the whole image
+     * @return the image, or null if it cannot be loaded
+     */
+    public BufferedImage loadImageNow(float scale, Dimension part) {
+        int subsampling = subsamplingFor(scale);
+        Decode available = findDecoded(subsampling, part);
+        ImageCache cache = ImageCache.getShared();
+        BufferedImage image = available != null && available.subsampling() <= subsampling
+                ? cache.getIfPresent(available.key()) : null;
+        if (image != null || isEmpty()) {
+            return image;
+        }
+        CompletableFuture<BufferedImage> decoded = new CompletableFuture<>();
+        AtomicBoolean decodeHere = new AtomicBoolean();
+        CompletableFuture<BufferedImage> loaded = cache.load(decodedKey(subsampling, part), () -> {
+            decodeHere.set(true);
+            return decoded;
+        });
+        if (decodeHere.get()) {
+            try {
+                decoded.complete(ImageDecoder.decode(imageFile, region(part), subsampling));
+            } catch (IOException | RuntimeException e) {
+                decoded.completeExceptionally(e);
+            }
+        }
+        try {
+            return loaded.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            logger.info("Error loading image: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Starts decoding part of the image in the background if it is not in the image cache
+     * Every n-th pixel is kept, so large photos shown at a small scale stay
+     * small in memory, and only the part that can be visible is decoded, so a
+     * photo larger than the slide does not take its full size either
+     *
+     * @param observer    The image observer to notify, may be null
+     * @param subsampling Keep every n-th pixel in both directions
+     * @param part        The part that can be visible, null for the whole image
+     * @return a future that completes with the image, or with null if it cannot be loaded
+     */
+    private synchronized CompletableFuture<BufferedImage> loadImage(ImageObserver observer, int subsampling, Dimension part) {
+        if (isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (observer != null && !observers.contains(observer)) {
+            observers.add(observer);
+        }
+        lastPart = part;
+        if (pendingImage == null || pendingSubsampling > subsampling || !covers(pendingPart, part)) {
+            pendingSubsampling = subsampling;
+            pendingPart = part;
+            pendingImage = ImageCache.getShared()
+                    .load(decodedKey(subsampling, part), () -> ImageDecoder.decodeAsync(imageFile, region(part), subsampling))
+                    .handle((image, failure) -> {
+                        if (failure != null) {
+                            logger.info("Error loading image: " + failure.getMessage());
+                            return null;
+                        }
+                        imageLoaded(image);
+                        return image;
+                    });
+        }
+        return pendingImage;
+    }
+
+    /**
+     * Tells the waiting observers that the image is available
+     * The pending decode is cleared, so an image that is later evicted
+     * from the cache is decoded again on its next draw
+     *
+     * @param image The decoded image
+     */
+    private void imageLoaded(BufferedImage image) {
+        synchronized (this) {
+            pendingImage = null;
+        }
+        for (ImageObserver observer : observers) {
+            observer.imageUpdate(image, ImageObserver.ALLBITS, 0, 0, image.getWidth(), image.getHeight());
+        }
+        observers.clear();
+    }
+
+    /**
+     * Checks whether the image, or the part of it last asked for, has been decoded at any resolution
+     *
+     * @return true if the image is available for drawing
+     */
+    public boolean isImageLoaded() {
+        Dimension part;
+        synchronized (this) {
+            part = lastPart;
+        }
+        return findDecoded(MAX_SUBSAMPLING, part) != null;
+    }
+
+    /**
+     * get the cache key of part of the image decoded with a subsampling
+     *
+     * @param subsampling The subsampling
+     * @param part        The part, null for the whole image
+     * @return the cache key
+     */
+    private String decodedKey(int subsampling, Dimension part) {
+        String key = cacheKey + "#" + subsampling;
+        return part == null ? key : key + "@" + part.width + "x" + part.height;
+    }
+
+    /**
+     * get the region of the image file to decode for a part
+     *
+     * @param part The part, null for the whole image
+     * @return the region from the top left corner, null for the whole image
+     */
+    private static Rectangle region(Dimension part) {
+        return part == null ? null : new Rectangle(part);
+    }
+
+    /**
+     * Checks whether a decoded part holds all pixels of another part
+     *
+     * @param decoded The decoded part, null for the whole image
+     * @param part    The part needed, null for the whole image
+     * @return true if the decoded part covers the part needed
+     */
+    private static boolean covers(Dimension decoded, Dimension part) {
+        return decoded == null || part != null && decoded.width >= part.width && decoded.height >= part.height;
+    }
+
+    /**
+     * Picks the coarsest subsampling that still gives at least one
+     * decoded pixel per screen pixel at the given scale
+     *
+     * @param scale The scale
+     * @return the subsampling, a power of two
+     */
+    private static int subsamplingFor(float scale) {
+        int subsampling = 1;
+        while (subsampling < MAX_SUBSAMPLING && subsampling * 2 * scale <= 1) {
+            subsampling *= 2;
         }
+        return subsampling;
     }
 
     /**
@@ -62,9 +423,9 @@ public class BitmapItem extends SlideItem {
      */
     public Rectangle getBoundingBox(Graphics g, ImageObserver observer, float scale, Style myStyle) {
         return new Rectangle((int) (myStyle.getIndent() * scale), 0,
-                (int) (bufferedImage.getWidth(observer) * scale),
+                (int) (imageSize.width * scale),
                 ((int) (myStyle.getLeading() * scale)) +
-                        (int) (bufferedImage.getHeight(observer) * scale));
+                        (int) (imageSize.height * scale));
     }
 
     /**
@@ -80,8 +441,269 @@ public class BitmapItem extends SlideItem {
     public void draw(int x, int y, float scale, Graphics g, Style myStyle, ImageObserver observer) {
         int width = x + (int) (myStyle.getIndent() * scale);
         int height = y + (int) (myStyle.getLeading() * scale);
-        g.drawImage(bufferedImage, width, height, (int) (bufferedImage.getWidth(observer) * scale),
-                (int) (bufferedImage.getHeight(observer) * scale), observer);
+        drawImage(g, width, height, (int) (imageSize.width * scale),
+                (int) (imageSize.height * scale), null, observer);
+    }
+
+    /**
+     * Compiles the image into a single positioned image operation
+     *
+     * @param x          The x coordinate
+     * @param y          The y coordinate
+     * @param scale      The scale
+     * @param g          The graphics object
+     * @param myStyle    The style
+     * @param observer   The image observer
+     * @param operations The list to add the operation to
+     */
+    @Override
+    public void compile(int x, int y, float scale, Graphics g, Style myStyle,
+                        ImageObserver observer, List<DisplayList.DrawOperation> operations) {
+        operations.add(new DisplayList.ImageOperation(this,
+                x + (int) (myStyle.getIndent() * scale), y + (int) (myStyle.getLeading() * scale),
+                (int) (imageSize.width * scale),
+                (int) (imageSize.height * scale), null));
+    }
+
+    /**
+     * Compiles the image into a single positioned image operation for an area
+     * Only the part of the image that can be visible in the area is decoded
+     *
+     * @param area       The area the slide is drawn in
+     * @param y          The y coordinate
+     * @param scale      The scale
+     * @param myStyle    The style
+     * @param operations The list to add the operation to
+     */
+    void compile(Rectangle area, int y, float scale, Style myStyle, List<DisplayList.DrawOperation> operations) {
+        operations.add(new DisplayList.ImageOperation(this,
+                area.x + (int) (myStyle.getIndent() * scale), y + (int) (myStyle.getLeading() * scale),
+                (int) (imageSize.width * scale),
+                (int) (imageSize.height * scale), getVisiblePart(area, scale, myStyle)));
+    }
+
+    /**
+     * Draws the image into a target rectangle
+     * A placeholder is drawn while the image is still being decoded, and a
+     * coarser decode is drawn while a finer one needed for the scale is loading
+     *
+     * @param g        The graphics object
+     * @param x        The x coordinate
+     * @param y        The y coordinate
+     * @param width    The target width
+     * @param height   The target height
+     * @param part     The part of the image that can be visible, null for the whole image
+     * @param observer The image observer
+     */
+    void drawImage(Graphics g, int x, int y, int width, int height, Dimension part, ImageObserver observer) {
+        drawImage(g, x, y, width, height, part, observer, true);
+    }
+
+    /**
+     * Draws the image into a target rectangle without starting a decode
+     * The best decode in the image cache is drawn, or a placeholder if there is none
+     *
+     * @param g      The graphics object
+     * @param x      The x coordinate
+     * @param y      The y coordinate
+     * @param width  The target width
+     * @param height The target height
+     * @param part   The part of the image that can be visible, null for the whole image
+     */
+    void drawDecodedImage(Graphics g, int x, int y, int width, int height, Dimension part) {
+        drawImage(g, x, y, width, height, part, null, false);
+    }
+
+    /**
+     * Draws the image into a target rectangle
+     * On a scaled device, such as a HiDPI screen, the image is decoded and
+     * scaled for the device pixels and drawn back into the target rectangle.
+     * When only part of the image is decoded, only that part of the rectangle is drawn.
+     *
+     * @param g        The graphics object
+     * @param x        The x coordinate
+     * @param y        The y coordinate
+     * @param width    The target width
+     * @param height   The target height
+     * @param part     The part of the image that can be visible, null for the whole image
+     * @param observer The image observer
+     * @param decode   Whether to start decoding the resolution needed for the scale
+     */
+    private void drawImage(Graphics g, int x, int y, int width, int height, Dimension part,
+                           ImageObserver observer, boolean decode) {
+        if (width <= 0 || height <= 0 || isEmpty()) {
+            return;
+        }
+        AffineTransform transform = ((Graphics2D) g).getTransform();
+        int deviceWidth = Math.max(1, (int) Math.round(width * Math.abs(transform.getScaleX())));
+        int deviceHeight = Math.max(1, (int) Math.round(height * Math.abs(transform.getScaleY())));
+        float scale = (float) deviceWidth / imageSize.width;
+        int subsampling = subsamplingFor(scale);
+        Decode available = findDecoded(subsampling, part);
+        if (decode && (available == null || available.subsampling() > subsampling)) {
+            loadImage(observer, subsampling, part);
+        }
+        if (available == null) {
+            g.setColor(PLACEHOLDER_COLOR);
+            g.fillRect(x, y, width, height);
+            g.setColor(PLACEHOLDER_BORDER);
+            g.drawRect(x, y, width - 1, height - 1);
+            return;
+        }
+        Image image = getScaledImage(g, available, deviceWidth, deviceHeight);
+        if (image == null) {
+            return;
+        }
+        Dimension shown = available.part() != null ? available.part() : imageSize;
+        int shownWidth = partOf(width, shown.width, imageSize.width);
+        int shownHeight = partOf(height, shown.height, imageSize.height);
+        if (deviceWidth == width && deviceHeight == height) {
+            g.drawImage(image, x, y, observer);
+        } else {
+            g.drawImage(image, x, y, shownWidth, shownHeight, observer);
+        }
+    }
+
+    /**
+     * get the target pixels taken by part of the image
+     *
+     * @param target The target pixels of the whole image
+     * @param part   The image pixels of the part
+     * @param whole  The image pixels of the whole image
+     * @return the target pixels of the part, at least one
+     */
+    private static int partOf(int target, int part, int whole) {
+        return part >= whole ? target : Math.max(1, (int) Math.round((double) target * part / whole));
+    }
+
+    /**
+     * Finds the best decode of the image that is in the image cache
+     * A decode of the whole image serves every part.
+     *
+     * @param subsampling The subsampling needed for the scale
+     * @param part        The part that can be visible, null for the whole image
+     * @return the needed or a finer decode if cached, otherwise the finest
+     * coarser decode, or null if nothing is cached
+     */
+    private Decode findDecoded(int subsampling, Dimension part) {
+        for (int finer = subsampling; finer >= 1; finer /= 2) {
+            Decode decode = findDecodedAt(finer, part);
+            if (decode != null) {
+                return decode;
+            }
+        }
+        for (int coarser = subsampling * 2; coarser <= MAX_SUBSAMPLING; coarser *= 2) {
+            Decode decode = findDecodedAt(coarser, part);
+            if (decode != null) {
+                return decode;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds a decode of the part or of the whole image with a subsampling in the image cache
+     *
+     * @param subsampling The subsampling
+     * @param part        The part that can be visible, null for the whole image
+     * @return the decode, or null if neither is cached
+     */
+    private Decode findDecodedAt(int subsampling, Dimension part) {
+        ImageCache cache = ImageCache.getShared();
+        if (part != null && cache.contains(decodedKey(subsampling, part))) {
+            return new Decode(subsampling, part, decodedKey(subsampling, part));
+        }
+        if (cache.contains(decodedKey(subsampling, null))) {
+            return new Decode(subsampling, null, decodedKey(subsampling, null));
+        }
+        return null;
+    }
+
+    /**
+     * Gets the decoded image scaled to a target size in the format of the target device
+     * Scaled copies are kept in the image cache next to the decoded image,
+     * so they are shared by all items showing the same image at the same size
+     * on the same device. A decoded part is scaled by the same factor as the
+     * whole image would be, so it shows exactly the same pixels.
+     *
+     * @param g      The graphics object
+     * @param decode The decode to scale
+     * @param width  The target width of the whole image
+     * @param height The target height of the whole image
+     * @return the scaled image, or null if the decode has just been evicted
+     */
+    private Image getScaledImage(Graphics g, Decode decode, int width, int height) {
+        ImageCache cache = ImageCache.getShared();
+        GraphicsConfiguration configuration = ((Graphics2D) g).getDeviceConfiguration();
+        String scaledKey = decode.key() + "@" + width + "x" + height + "@" + deviceKey(configuration);
+        BufferedImage scaled = cache.getIfPresent(scaledKey);
+        if (scaled != null) {
+            return scaled;
+        }
+        BufferedImage image = cache.getIfPresent(decode.key());
+        if (image == null || width <= 0 || height <= 0) {
+            return image;
+        }
+        Dimension shown = decode.part() != null ? decode.part() : imageSize;
+        int subsampling = decode.subsampling();
+        double scaleX = (double) width / ((imageSize.width + subsampling - 1) / subsampling);
+        double scaleY = (double) height / ((imageSize.height + subsampling - 1) / subsampling);
+        return cache.computeIfAbsent(scaledKey, () -> scale(image, configuration,
+                partOf(width, shown.width, imageSize.width), partOf(height, shown.height, imageSize.height),
+                scaleX, scaleY));
+    }
+
+    /**
+     * get the part of a cache key that identifies a device configuration
+     * Each configuration gets its own number, so a copy made for one screen
+     * is never drawn on another
+     *
+     * @param configuration The device configuration, may be null
+     * @return the device key
+     */
+    private static String deviceKey(GraphicsConfiguration configuration) {
+        if (configuration == null) {
+            return "null";
+        }
+        synchronized (devices) {
+            return "d" + devices.computeIfAbsent(configuration, key -> nextDevice++);
+        }
+    }
+
+    /**
+     * Scales an image into a device compatible image
+     *
+     * @param image         The decoded image
+     * @param configuration The target device configuration
+     * @param width         The target width
+     * @param height        The target height
+     * @param scaleX        The horizontal scale factor
+     * @param scaleY        The vertical scale factor
+     * @return the scaled image
+     */
+    private static BufferedImage scale(BufferedImage image, GraphicsConfiguration configuration, int width, int height,
+                                       double scaleX, double scaleY) {
+        BufferedImage target = configuration.createCompatibleImage(width, height, image.getColorModel().getTransparency());
+        Graphics2D g2d = target.createGraphics();
+        try {
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g2d.drawImage(image, AffineTransform.getScaleInstance(scaleX, scaleY), null);
+        } finally {
+            g2d.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * get a description of what the item shows
+     * The image file is identified by its path, size and modification time
+     *
+     * @return the content key
+     */
+    @Override
+    public String getContentKey() {
+        return toString() + "@" + imageStamp;
     }
 
     /**
@@ -91,4 +713,14 @@ public class BitmapItem extends SlideItem {
     public String toString() {
         return "BitmapItem[" + getLevel() + "," + imagePath + "]";
     }
+
+    /**
+     * A decode of the image in the image cache
+     *
+     * @param subsampling The subsampling of the decode
+     * @param part        The part decoded, null for the whole image
+     * @param key         The cache key of the decode
+     */
+    private record Decode(int subsampling, Dimension part, String key) {
+    }
 }
@@ -0,0 +1,171 @@
+package main.model;
+
+import main.util.Style;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
+import java.awt.image.ImageObserver;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable list of positioned draw operations for one slide,
+ * compiled for one target area and font render context
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+
+public final class DisplayList {
+    private final Rectangle area; // The area the list was compiled for
+    private final FontRenderContext frc; // The render context the list was compiled for
+    private final List<DrawOperation> operations; // The draw operations in paint order
+
+    /**
+     * Constructor for DisplayList
+     *
+     * @param area       the area the operations are positioned in
+     * @param frc        the font render context used for the text layouts
+     * @param operations the draw operations in paint order
+     */
+    DisplayList(Rectangle area, FontRenderContext frc, List<DrawOperation> operations) {
+        this.area = new Rectangle(area);
+        this.frc = frc;
+        this.operations = Collections.unmodifiableList(operations);
+    }
+
+    /**
+     * Checks whether this list can be replayed for the given area
+     *
+     * @param area the area to draw in
+     * @param frc  the font render context of the target graphics
+     * @return true if the list was compiled for this area and render context
+     */
+    public boolean isCompiledFor(Rectangle area, FontRenderContext frc) {
+        return this.area.equals(area) && this.frc.equals(frc);
+    }
+
+    /**
+     * Replays the draw operations
+     *
+     * @param g        the graphics object
+     * @param observer the image observer
+     */
+    public void replay(Graphics g, ImageObserver observer) {
+        Graphics2D g2d = (Graphics2D) g;
+        for (DrawOperation operation : operations) {
+            operation.replay(g2d, observer);
+        }
+    }
+
+    /**
+     * Replays the draw operations as a quick draft
+     * No image decodes are started; images that are not decoded at any
+     * resolution yet are drawn as placeholders
+     *
+     * @param g the graphics object
+     */
+    public void replayDraft(Graphics g) {
+        Graphics2D g2d = (Graphics2D) g;
+        for (DrawOperation operation : operations) {
+            operation.replayDraft(g2d);
+        }
+    }
+
+    /**
+     * get the number of draw operations
+     *
+     * @return the number of draw operations
+     */
+    public int size() {
+        return operations.size();
+    }
+
+    /**
+     * A single positioned draw operation
+     */
+    public interface DrawOperation {
+
+        /**
+         * Performs the operation
+         *
+         * @param g        the graphics object
+         * @param observer the image observer
+         */
+        void replay(Graphics2D g, ImageObserver observer);
+
+        /**
+         * Performs the operation as part of a draft, without starting image decodes
+         *
+         * @param g the graphics object
+         */
+        default void replayDraft(Graphics2D g) {
+            replay(g, null);
+        }
+    }
+
+    /**
+     * Sets the current color
+     *
+     * @param color the color
+     */
+    record ColorOperation(Color color) implements DrawOperation {
+        @Override
+        public void replay(Graphics2D g, ImageObserver observer) {
+            g.setColor(color);
+        }
+    }
+
+    /**
+     * Draws one line of text
+     *
+     * @param layout the line layout
+     * @param x      the x coordinate of the pen
+     * @param y      the baseline of the line
+     */
+    record TextRunOperation(TextLayout layout, float x, float y) implements DrawOperation {
+        @Override
+        public void replay(Graphics2D g, ImageObserver observer) {
+            layout.draw(g, x, y);
+        }
+    }
+
+    /**
+     * Draws an image into a target rectangle
+     *
+     * @param item   the bitmap item holding the image
+     * @param x      the x coordinate
+     * @param y      the y coordinate
+     * @param width  the target width
+     * @param height the target height
+     * @param part   the part of the image that can be visible, null for the whole image
+     */
+    record ImageOperation(BitmapItem item, int x, int y, int width, int height, Dimension part) implements DrawOperation {
+        @Override
+        public void replay(Graphics2D g, ImageObserver observer) {
+            item.drawImage(g, x, y, width, height, part, observer);
+        }
+
+        @Override
+        public void replayDraft(Graphics2D g) {
+            item.drawDecodedImage(g, x, y, width, height, part);
+        }
+    }
+
+    /**
+     * Draws an item that has no compiled form of its own
+     *
+     * @param item  the slide item
+     * @param x     the x coordinate
+     * @param y     the y coordinate
+     * @param scale the scale
+     * @param style the style
+     */
+    record ItemOperation(SlideItem item, int x, int y, float scale, Style style) implements DrawOperation {
+        @Override
+        public void replay(Graphics2D g, ImageObserver observer) {
+            item.draw(x, y, scale, g, style, observer);
+        }
+    }
+}
@@ -1,23 +1,69 @@
 package main.model;
 
+import main.accessor.AccessorTask;
+import main.accessor.Progress;
+import main.accessor.ReadAccessor;
+import main.accessor.WriteAccessor;
 import main.ui.SlideViewerComponent;
+import main.util.StyleCollection;
 
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.logging.Logger;
 
 
 /**
  * Presentations keep track of the slides in a presentation
  * Only one instance of this class is available.
+ * Slides may be appended by a background loader while the
+ * presentation is shown, so access to the slide list is synchronized.
+ * A presentation can also be backed by a SlideSource, in which case
+ * slides are only created when they are first asked for, and only the
+ * slides in a window around the current slide are kept: the others are
+ * dropped and created again when they are asked for. Slides that have
+ * been changed since they were created are never dropped. Slides are
+ * created by the source outside the lock, so readers of other slides
+ * are not held up.
+ * The titles and texts of the slides are indexed as they are added,
+ * so slides can be found by the words on them. The slides of a slide
+ * source are only indexed once they are first searched, so a deck that
+ * is only shown is not read as a whole.
+ * File systems the images are read from, such as an open bundle, are
+ * kept open until the slides showing their images are gone.
  *
  * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
  * @version 1.61 2024/01/10 Carla Redmond
  */
 
 public class Presentation {
-    private String showTitle; //The title of the presentation
-    private ArrayList<Slide> showList = new ArrayList<>(); //An ArrayList with slides
-    private int currentSlideNumber = 0; //The number of the current slide
+    private static final Logger logger = Logger.getLogger(Presentation.class.getName()); //Logger
+    private static final int DEFAULT_PAGE_WINDOW = Integer.getInteger("jabberpoint.pageWindow", 8); //Slides kept on each side of the current slide
+    private volatile String showTitle; //The title of the presentation
+    private ArrayList<Slide> showList = new ArrayList<>(); //An ArrayList with slides, null for slides not yet loaded
+    private SlideSource slideSource = null; //Creates the slides that have not been loaded, may be null
+    private SlideSource indexedSource = null; //The slide source whose slides are being or have been indexed
+    private final Map<Integer, Integer> pagedVersions = new HashMap<>(); //Versions of the slides created by the slide source, by number
+    private String[] sourceDigests = new String[0]; //Content digests of the slides of the slide source, by number, null where not known yet
+    private int pageWindow = DEFAULT_PAGE_WINDOW; //Slides kept on each side of the current slide
+    private volatile int currentSlideNumber = 0; //The number of the current slide
+    private volatile boolean loading = false; //True while a background loader is appending slides
+    private AccessorTask loader = null; //The background load
+    private PresentationWatcher watcher = null; //Reloads the presentation when its file changes
     private SlideViewerComponent slideViewComponent = null; //The view component of the slides
+    private volatile StyleCollection styleSheet = StyleCollection.getDefault(); //The style sheet shared by all slides
+    private final SlideIndex index = new SlideIndex(); //Finds slides by the words on them
+    private List<FileSystem> fileSystems = new ArrayList<>(); //The file systems the images of the slides are read from
 
     /**
      * Constructor for Presentation
@@ -41,7 +87,7 @@ public class Presentation {
      *
      * @return the number of slides in the presentation
      */
-    public int getSize() {
+    public synchronized int getSize() {
         return showList.size();
     }
 
@@ -106,31 +152,629 @@ public class Presentation {
      * Clear the presentation
      */
     public void clear() {
-        showList = new ArrayList<>();
+        cancelLoading();
+        stopWatching();
+        List<FileSystem> unused;
+        synchronized (this) {
+            showList = new ArrayList<>();
+            slideSource = null;
+            pagedVersions.clear();
+            sourceDigests = new String[0];
+            unused = releaseFileSystems();
+        }
+        close(unused);
+        index.truncate(0);
         setSlideNumber(-1);
     }
 
+    /**
+     * Keeps a file system open for as long as slides of the presentation may read images from it
+     * It is closed when the presentation is cleared, or when a reload has replaced
+     * all slides that read from it.
+     *
+     * @param fileSystem the file system, such as an open bundle
+     */
+    public synchronized void holdFileSystem(FileSystem fileSystem) {
+        fileSystems.add(fileSystem);
+    }
+
+    /**
+     * Hands over the file systems held, which are no longer held afterwards
+     *
+     * @return the file systems
+     */
+    private synchronized List<FileSystem> releaseFileSystems() {
+        List<FileSystem> released = fileSystems;
+        fileSystems = new ArrayList<>();
+        return released;
+    }
+
+    /**
+     * Closes file systems that are no longer used
+     *
+     * @param unused the file systems
+     */
+    private static void close(List<FileSystem> unused) {
+        for (FileSystem fileSystem : unused) {
+            try {
+                fileSystem.close();
+            } catch (IOException e) {
+                logger.info("Error closing file system: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Back the presentation by a slide source
+     * The slides are created by the source when they are first asked for
+     *
+     * @param source the slide source
+     */
+    public void setSlideSource(SlideSource source) {
+        int size = source.getSize();
+        synchronized (this) {
+            slideSource = source;
+            showList = new ArrayList<>(Collections.nCopies(size, null));
+            pagedVersions.clear();
+            sourceDigests = new String[size];
+            indexedSource = null;
+        }
+        index.truncate(0);
+        if (slideViewComponent != null && size > 0) {
+            slideViewComponent.slideAppended(this, 0);
+        }
+    }
+
     /**
      * add a slide to the presentation
+     * The view is told about the new slide, so that it can show the
+     * first slide or update the slide count while the deck is loading
      *
      * @param slide the slide to be added
      */
     public void append(Slide slide) {
-        showList.add(slide);
+        slide.setStyleSheet(styleSheet);
+        int number;
+        synchronized (this) {
+            showList.add(slide);
+            number = showList.size() - 1;
+        }
+        index.put(number, slide);
+        if (slideViewComponent != null) {
+            slideViewComponent.slideAppended(this, number);
+        }
+    }
+
+    /**
+     * Loads the presentation on a background thread
+     * Slides are shown as soon as they have been appended; a running load is cancelled first.
+     * The progress of the load is shown by the view.
+     *
+     * @param accessor the accessor to load with
+     * @param filename the filename to load from
+     * @return the running load
+     */
+    public AccessorTask loadInBackground(ReadAccessor accessor, String filename) {
+        cancelLoading();
+        setLoading(true);
+        AccessorTask task = accessor.loadFileAsync(this, filename, this::progressed);
+        synchronized (this) {
+            loader = task;
+        }
+        task.whenComplete((unused, failure) -> loadFinished(task, failure));
+        return task;
+    }
+
+    /**
+     * Logs a failed load and marks the presentation as loaded, unless another load has started since
+     *
+     * @param task    the finished load
+     * @param failure the reason the load failed, null if it succeeded
+     */
+    private void loadFinished(AccessorTask task, Throwable failure) {
+        logFailure("Error loading file: ", failure);
+        synchronized (this) {
+            if (loader != task) {
+                return;
+            }
+            loader = null;
+        }
+        setLoading(false);
+    }
+
+    /**
+     * Saves the presentation on a background thread
+     * The progress of the save is shown by the view.
+     *
+     * @param accessor the accessor to save with
+     * @param filename the filename to save to
+     * @return the running save
+     */
+    public AccessorTask saveInBackground(WriteAccessor accessor, String filename) {
+        AccessorTask task = accessor.saveFileAsync(this, filename, this::progressed);
+        task.whenComplete((unused, failure) -> logFailure("Error saving file: ", failure));
+        return task;
+    }
+
+    /**
+     * Logs why a background load or save failed; a cancelled one is not logged
+     *
+     * @param message the message to log in front of the reason
+     * @param failure the reason, null if it did not fail
+     */
+    private static void logFailure(String message, Throwable failure) {
+        Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+        if (cause != null && !(cause instanceof CancellationException)) {
+            logger.info(message + cause.getMessage());
+        }
+    }
+
+    /**
+     * Shows the progress of a background load or save in the view
+     *
+     * @param progress the progress
+     */
+    private void progressed(Progress progress) {
+        if (slideViewComponent != null) {
+            slideViewComponent.showProgress(progress);
+        }
+    }
+
+    /**
+     * Reloads the presentation whenever its file changes
+     * Only the slides that have changed are replaced; see reload
+     *
+     * @param accessor the accessor to read the file with
+     * @param filename the file to watch
+     */
+    public void watchSource(ReadAccessor accessor, String filename) {
+        PresentationWatcher started = new PresentationWatcher(this, accessor, filename);
+        synchronized (this) {
+            if (watcher != null) {
+                watcher.stop();
+            }
+            watcher = started;
+        }
+        started.start();
+    }
+
+    /**
+     * Stops reloading the presentation when its file changes
+     */
+    public synchronized void stopWatching() {
+        if (watcher != null) {
+            watcher.stop();
+            watcher = null;
+        }
+    }
+
+    /**
+     * Takes over the slides of a newer version of the presentation
+     * Slides are matched by content: a slide whose content has not changed
+     * keeps its Slide object, with its layout and rendered images, preferably at
+     * the same number. Only new and changed slides are taken from the newer
+     * version. The current slide number is kept. This is meant for presentations
+     * that hold all their slides, not for ones backed by a slide source.
+     * The reload is ignored if its watcher has been stopped or replaced, so
+     * it cannot replace a presentation opened since, and while slides are
+     * still being loaded, which would otherwise keep appending to the new list.
+     *
+     * @param newer  the newer version of the presentation
+     * @param source the watcher that read the newer version
+     */
+    void reload(Presentation newer, PresentationWatcher source) {
+        List<FileSystem> unused = new ArrayList<>();
+        try {
+            reload(newer, source, unused);
+        } finally {
+            close(unused);
+        }
+    }
+
+    /**
+     * Takes over the slides of a newer version of the presentation, see reload
+     * The file systems of the newer version are held from then on; those that
+     * none of the slides read images from any more are handed back to be closed.
+     * A reload that is ignored hands back the file systems of the newer version.
+     *
+     * @param newer  the newer version of the presentation
+     * @param source the watcher that read the newer version
+     * @param unused receives the file systems that are no longer used
+     */
+    private void reload(Presentation newer, PresentationWatcher source, List<FileSystem> unused) {
+        synchronized (this) {
+            if (source != watcher || isLoading()) {
+                unused.addAll(newer.releaseFileSystems());
+                return;
+            }
+            int size = newer.getSize();
+            List<Slide> reloaded = new ArrayList<>(Collections.nCopies(size, null));
+            int[] hashes = new int[size];
+            Map<Integer, ArrayDeque<Slide>> unmatched = new HashMap<>();
+            for (Slide slide : showList) {
+                if (slide != null) {
+                    unmatched.computeIfAbsent(slide.getContentHash(), hash -> new ArrayDeque<>()).add(slide);
+                }
+            }
+            for (int number = 0; number < size; number++) {
+                Slide slide = newer.getSlide(number);
+                hashes[number] = slide.getContentHash();
+                Slide old = number < showList.size() ? showList.get(number) : null;
+                if (old != null && old.getContentHash() == hashes[number] && old.hasSameContent(slide)) {
+                    reloaded.set(number, old);
+                    unmatched.get(hashes[number]).remove(old);
+                }
+            }
+            for (int number = 0; number < size; number++) {
+                if (reloaded.get(number) == null) {
+                    Slide slide = newer.getSlide(number);
+                    Slide moved = takeSameContent(unmatched.get(hashes[number]), slide);
+                    if (moved != null) {
+                        reloaded.set(number, moved);
+                    } else {
+                        slide.setStyleSheet(styleSheet);
+                        reloaded.set(number, slide);
+                    }
+                }
+            }
+            showList = new ArrayList<>(reloaded);
+            slideSource = null;
+            pagedVersions.clear();
+            sourceDigests = new String[0];
+            fileSystems.addAll(newer.releaseFileSystems());
+            Set<FileSystem> used = fileSystemsOf(reloaded);
+            Iterator<FileSystem> held = fileSystems.iterator();
+            while (held.hasNext()) {
+                FileSystem fileSystem = held.next();
+                if (!used.contains(fileSystem)) {
+                    unused.add(fileSystem);
+                    held.remove();
+                }
+            }
+            showTitle = newer.getTitle();
+            for (int number = 0; number < size; number++) {
+                index.put(number, reloaded.get(number));
+            }
+            index.truncate(size);
+        }
+        if (slideViewComponent != null) {
+            slideViewComponent.slidesReplaced(this);
+        }
+    }
+
+    /**
+     * get the file systems the images of slides are read from
+     *
+     * @param slides the slides
+     * @return the file systems
+     */
+    private static Set<FileSystem> fileSystemsOf(List<Slide> slides) {
+        Set<FileSystem> used = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Slide slide : slides) {
+            for (SlideItem slideItem : slide.getSlideItems()) {
+                if (slideItem instanceof BitmapItem bitmapItem) {
+                    used.add(bitmapItem.getImageFile().getFileSystem());
+                }
+            }
+        }
+        return used;
+    }
+
+    /**
+     * Takes a slide with the same content as another slide out of a list of candidates
+     *
+     * @param candidates the slides with the same content hash, may be null
+     * @param slide      the slide to match
+     * @return the matching slide, or null if there is none
+     */
+    private static Slide takeSameContent(ArrayDeque<Slide> candidates, Slide slide) {
+        if (candidates == null) {
+            return null;
+        }
+        Iterator<Slide> iterator = candidates.iterator();
+        while (iterator.hasNext()) {
+            Slide candidate = iterator.next();
+            if (candidate.hasSameContent(slide)) {
+                iterator.remove();
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the slides whose title or text contain all words of a query
+     * Each word of the query also matches the longer words it is the start of,
+     * and case is ignored. Only the slides indexed so far are searched: the slides
+     * of a slide source are indexed in the background from the first search on,
+     * and the view is told when that is done, see isIndexed.
+     *
+     * @param query the words to look for
+     * @return the numbers of the matching slides in ascending order
+     */
+    public int[] search(String query) {
+        indexInBackground();
+        return index.search(query);
+    }
+
+    /**
+     * Starts indexing the slides of the slide source in the background
+     * Nothing is done if there is no slide source or its indexing has already
+     * been started. This is called by the first search, and can be called
+     * earlier when a search is about to be made.
+     */
+    public void indexInBackground() {
+        SlideSource source;
+        synchronized (this) {
+            if (slideSource == null || indexedSource == slideSource) {
+                return;
+            }
+            source = slideSource;
+            indexedSource = source;
+        }
+        Thread indexer = new Thread(() -> indexRemaining(source), "presentation-indexer");
+        indexer.setDaemon(true);
+        indexer.setPriority(Thread.MIN_PRIORITY);
+        indexer.start();
+    }
+
+    /**
+     * Tells whether every slide has been indexed for search
+     *
+     * @return true if a search covers all slides
+     */
+    public boolean isIndexed() {
+        return index.getSize() >= getSize();
+    }
+
+    /**
+     * Indexes the slides of the slide source in the background
+     * The slides are created for the index only, so the slides kept in memory
+     * are not changed. They are created outside the lock, so the viewer is not
+     * held up; the indexing stops when another source has been set meanwhile.
+     *
+     * @param source the slide source being indexed
+     */
+    private void indexRemaining(SlideSource source) {
+        for (int number = index.getSize(); ; number = index.getSize()) {
+            Slide slide;
+            synchronized (this) {
+                if (slideSource != source || number >= showList.size()) {
+                    break;
+                }
+                slide = showList.get(number);
+            }
+            if (slide == null) {
+                slide = source.loadSlide(number);
+            }
+            synchronized (this) {
+                if (slideSource != source) {
+                    return;
+                }
+                index.put(number, slide);
+            }
+        }
+        if (slideViewComponent != null) {
+            slideViewComponent.slidesIndexed(this);
+        }
+    }
+
+    /**
+     * Stops a running background load and waits for it to finish
+     */
+    public void cancelLoading() {
+        AccessorTask running;
+        synchronized (this) {
+            running = loader;
+            loader = null;
+        }
+        if (running == null) {
+            return;
+        }
+        running.cancel(true);
+        try {
+            running.awaitTermination();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        setLoading(false);
+    }
+
+    /**
+     * Checks whether slides are still being loaded
+     *
+     * @return true while a background load is running
+     */
+    public boolean isLoading() {
+        return loading;
+    }
+
+    /**
+     * Marks the presentation as loading or loaded
+     *
+     * @param loading true while slides are still being appended
+     */
+    private void setLoading(boolean loading) {
+        this.loading = loading;
+        if (slideViewComponent != null) {
+            slideViewComponent.repaint();
+        }
+    }
+
+    /**
+     * get the style sheet shared by all slides
+     *
+     * @return the style sheet
+     */
+    public StyleCollection getStyleSheet() {
+        return styleSheet;
+    }
+
+    /**
+     * set the style sheet shared by all slides
+     *
+     * @param styleSheet the style sheet
+     */
+    public synchronized void setStyleSheet(StyleCollection styleSheet) {
+        this.styleSheet = styleSheet;
+        for (Slide slide : showList) {
+            if (slide != null) {
+                slide.setStyleSheet(styleSheet);
+            }
+        }
+        //the new style sheet is set again when a dropped slide is created, so it is not a change
+        pagedVersions.replaceAll((number, version) -> showList.get(number).getVersion());
+    }
+
+    /**
+     * get the number of slides kept on each side of the current slide
+     * when the presentation is backed by a slide source
+     *
+     * @return the page window
+     */
+    public synchronized int getPageWindow() {
+        return pageWindow;
+    }
+
+    /**
+     * set the number of slides kept on each side of the current slide
+     * when the presentation is backed by a slide source
+     *
+     * @param pageWindow the page window
+     */
+    public synchronized void setPageWindow(int pageWindow) {
+        this.pageWindow = Math.max(0, pageWindow);
+        dropOutsideWindow();
     }
 
 
     /**
      * get the slide with the given number
+     * A slide that is not in memory is created by the slide source outside the
+     * lock. It is kept unless another source has been set meanwhile; if another
+     * thread created the same slide first, that one is returned.
      *
      * @param number the number of the slide to be returned
      * @return the slide with the given number
      */
     public Slide getSlide(int number) {
-        if (number < 0 || number >= getSize()) {
-            return null;
+        List<Slide> slides;
+        SlideSource source;
+        synchronized (this) {
+            if (number < 0 || number >= showList.size()) {
+                return null;
+            }
+            Slide slide = showList.get(number);
+            if (slide != null || slideSource == null) {
+                return slide;
+            }
+            slides = showList;
+            source = slideSource;
+        }
+        Slide created = source.loadSlide(number);
+        synchronized (this) {
+            created.setStyleSheet(styleSheet);
+            if (showList != slides) {
+                return created;
+            }
+            Slide slide = showList.get(number);
+            if (slide != null) {
+                return slide;
+            }
+            showList.set(number, created);
+            pagedVersions.put(number, created.getVersion());
+            dropOutsideWindow();
+        }
+        return created;
+    }
+
+    /**
+     * get the content digest of the slide with the given number
+     * A slide in memory gives its own digest, which it keeps for its version.
+     * The digest of a slide of the slide source is remembered while that source
+     * is used, so it is only created once; the source does not change, and a
+     * slide that is changed stays in memory.
+     *
+     * @param number the number of the slide
+     * @return the content digest, or null if there is no such slide
+     */
+    public String getContentDigest(int number) {
+        Slide slide;
+        SlideSource source;
+        String[] digests;
+        synchronized (this) {
+            if (number < 0 || number >= showList.size()) {
+                return null;
+            }
+            slide = showList.get(number);
+            source = slideSource;
+            digests = sourceDigests;
+            if (slide == null && source != null && digests[number] != null) {
+                return digests[number];
+            }
+        }
+        if (slide != null) {
+            return slide.getContentDigest();
+        }
+        String digest = source.loadSlide(number).getContentDigest();
+        synchronized (this) {
+            if (sourceDigests == digests) {
+                digests[number] = digest;
+            }
+        }
+        return digest;
+    }
+
+    /**
+     * get a slide to read from, without keeping it
+     * A slide that is not in memory is created by the slide source outside the
+     * lock and is not kept, so the slides kept around the current slide stay as
+     * they are. This is meant for readers that go through many slides, such as
+     * the thumbnails; the slide returned should not be changed.
+     *
+     * @param number the number of the slide to be returned
+     * @return the slide with the given number
+     */
+    public Slide readSlide(int number) {
+        Slide slide;
+        SlideSource source;
+        synchronized (this) {
+            if (number < 0 || number >= showList.size()) {
+                return null;
+            }
+            slide = showList.get(number);
+            source = slideSource;
+        }
+        if (slide == null && source != null) {
+            slide = source.loadSlide(number);
+            slide.setStyleSheet(styleSheet);
+        }
+        return slide;
+    }
+
+    /**
+     * Drops the slides created by the slide source that are outside the window
+     * Nothing is dropped until more slides are kept than fit in the window,
+     * so moving back and forth near the current slide creates no slides.
+     * Slides that have been changed are kept, as they cannot be created again.
+     */
+    private void dropOutsideWindow() {
+        if (pagedVersions.size() <= 2L * pageWindow + 1) {
+            return;
+        }
+        int current = currentSlideNumber;
+        Iterator<Map.Entry<Integer, Integer>> entries = pagedVersions.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Integer, Integer> entry = entries.next();
+            int number = entry.getKey();
+            Slide slide = showList.get(number);
+            if (slide.getVersion() != entry.getValue()) {
+                entries.remove();
+            } else if (Math.abs(number - current) > pageWindow) {
+                showList.set(number, null);
+                entries.remove();
+            }
         }
-        return showList.get(number);
     }
 
     /**
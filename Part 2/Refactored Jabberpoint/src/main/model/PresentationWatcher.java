@@ -0,0 +1,141 @@
+package main.model;
+
+import main.accessor.ReadAccessor;
+import main.exception.AccessorException;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * PresentationWatcher reloads a presentation when its file changes
+ * The directory of the file is watched on a background thread. When the
+ * file has been written, and no more changes follow for a short while,
+ * it is read again and the presentation takes over the changed slides.
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+public class PresentationWatcher {
+    private static final Logger logger = Logger.getLogger(PresentationWatcher.class.getName()); //Logger
+    private static final long SETTLE_MILLIS = Long.getLong("jabberpoint.reloadDelay", 300); //Quiet time before a changed file is read
+    private final Presentation presentation; //The presentation to reload
+    private final ReadAccessor accessor; //The accessor to read the file with
+    private final String filename; //The file to watch
+    private final Thread thread; //The watching thread
+
+    /**
+     * Constructor for PresentationWatcher
+     *
+     * @param presentation the presentation to reload
+     * @param accessor     the accessor to read the file with
+     * @param filename     the file to watch
+     */
+    public PresentationWatcher(Presentation presentation, ReadAccessor accessor, String filename) {
+        this.presentation = presentation;
+        this.accessor = accessor;
+        this.filename = filename;
+        this.thread = new Thread(this::watch, "presentation-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts watching the file
+     */
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Stops watching the file
+     */
+    public void stop() {
+        thread.interrupt();
+    }
+
+    /**
+     * Watches the directory of the file until the watcher is stopped
+     */
+    private void watch() {
+        Path file = Paths.get(filename).toAbsolutePath();
+        Path directory = file.getParent();
+        try (WatchService watchService = directory.getFileSystem().newWatchService()) {
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            while (!Thread.currentThread().isInterrupted()) {
+                if (isChanged(watchService.take(), file.getFileName())) {
+                    waitUntilSettled(watchService);
+                    reload();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            //the watcher was stopped
+        } catch (IOException e) {
+            logger.info("Error watching file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Checks whether the events of a key are about the file
+     *
+     * @param key  the key with events
+     * @param name the name of the file
+     * @return true if the file was created or changed
+     */
+    private boolean isChanged(WatchKey key, Path name) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (name.equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    /**
+     * Waits until no more changes arrive, so that an editor that writes
+     * the file in several steps is only followed once
+     *
+     * @param watchService the watch service
+     * @throws InterruptedException if the watcher is stopped
+     */
+    private void waitUntilSettled(WatchService watchService) throws InterruptedException {
+        WatchKey key;
+        while ((key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+            key.pollEvents();
+            key.reset();
+        }
+    }
+
+    /**
+     * Reads the file again and lets the presentation take over the changed slides
+     * Only a file that was read to its end is applied: a file that fails to parse
+     * is taken to be half written, and the slides read before the failure are
+     * dropped, as is a file that yields no slides, and what they opened is closed.
+     * The presentation ignores the reload if this watcher has been stopped since.
+     */
+    private void reload() {
+        Presentation changed = new Presentation();
+        try {
+            accessor.loadFile(changed, filename);
+        } catch (AccessorException | IOException e) {
+            logger.info("Error reloading file, keeping the slides shown: " + e.getMessage());
+            changed.clear();
+            return;
+        }
+        if (changed.getSize() == 0 || Thread.currentThread().isInterrupted()) {
+            changed.clear();
+            return;
+        }
+        presentation.reload(changed, this);
+    }
+}
@@ -0,0 +1,75 @@
+package main.model;
+
+import java.util.function.Predicate;
+
+/**
+ * RecentValues keeps the last few values compiled for different targets
+ * The viewer, the prefetcher, the thumbnails, the server and the exporter
+ * each draw at their own size, so one slot would be thrown away by every
+ * other caller. The values are kept most recently used first; the oldest
+ * one is dropped when another is added. Readers do not lock: every change
+ * replaces the whole array, so a racing update at worst drops a value that
+ * is then compiled again.
+ *
+ * @param <V> the type of the values
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+final class RecentValues<V> {
+    private static final Object[] EMPTY = new Object[0]; //No values
+    private final int capacity; //The most values kept
+    private volatile Object[] values = EMPTY; //The values, most recently used first
+
+    /**
+     * Constructor for RecentValues
+     *
+     * @param capacity the most values kept
+     */
+    RecentValues(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Finds a value and marks it as the most recently used one
+     *
+     * @param wanted tells whether a value fits
+     * @return the first value that fits, null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    V find(Predicate<V> wanted) {
+        Object[] current = values;
+        for (int i = 0; i < current.length; i++) {
+            V value = (V) current[i];
+            if (wanted.test(value)) {
+                if (i > 0) {
+                    Object[] reordered = current.clone();
+                    System.arraycopy(current, 0, reordered, 1, i);
+                    reordered[0] = value;
+                    values = reordered;
+                }
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds a value as the most recently used one
+     *
+     * @param value the value
+     */
+    void add(V value) {
+        Object[] current = values;
+        Object[] added = new Object[Math.min(current.length + 1, capacity)];
+        added[0] = value;
+        System.arraycopy(current, 0, added, 1, added.length - 1);
+        values = added;
+    }
+
+    /**
+     * Drops all values
+     */
+    void clear() {
+        values = EMPTY;
+    }
+}
@@ -5,9 +5,18 @@ import main.util.StyleCollection;
 import main.util.TextEnums;
 
 import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.AffineTransform;
 import java.awt.image.ImageObserver;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Presentations keep track of the slides in a presentation
@@ -17,16 +26,21 @@ import java.util.List;
  */
 
 public class Slide {
-    private final StyleCollection styleCollection; //The style collection
+    private StyleCollection styleCollection = StyleCollection.getDefault(); //The style sheet, or the overrides of this slide
+    private boolean hasStyleOverrides = false; //True if styleCollection holds overrides of this slide
     protected String title; //The title of the slide
     protected ArrayList<SlideItem> items; //The items on the slide
+    private TextItem titleItem = new TextItem(0, null); //The title as a drawable item
+    private static final int DISPLAY_LISTS = 4; //The most display lists kept, one per drawing size
+    private final RecentValues<DisplayList> displayLists = new RecentValues<>(DISPLAY_LISTS); //The last compiled display lists
+    private volatile int version; //Incremented on every content change
+    private volatile ContentDigest contentDigest; //The digest of the content at a version
 
     /**
      * Constructor for Slide
      */
     public Slide() {
         items = new ArrayList<>();
-        this.styleCollection = new StyleCollection();
     }
 
     /**
@@ -36,6 +50,7 @@ public class Slide {
      */
     public void appendText(SlideItem anItem) {
         items.add(anItem);
+        invalidate();
     }
 
     /**
@@ -54,6 +69,204 @@ public class Slide {
      */
     public void setTitle(String newTitle) {
         title = newTitle;
+        titleItem = new TextItem(0, newTitle);
+        invalidate();
+    }
+
+    /**
+     * discard the compiled display lists after a content change
+     */
+    public void invalidate() {
+        displayLists.clear();
+        version++;
+    }
+
+    /**
+     * get the styles used to draw the slide
+     *
+     * @return the style collection
+     */
+    public StyleCollection getStyleCollection() {
+        return styleCollection;
+    }
+
+    /**
+     * set the shared style sheet of the slide
+     * Styles overridden on this slide keep taking precedence
+     *
+     * @param styleSheet the style sheet
+     */
+    public void setStyleSheet(StyleCollection styleSheet) {
+        if (hasStyleOverrides) {
+            styleCollection.setParent(styleSheet);
+        } else if (styleCollection == styleSheet) {
+            return;
+        } else {
+            styleCollection = styleSheet;
+        }
+        invalidate();
+    }
+
+    /**
+     * override the style of one level on this slide only
+     *
+     * @param level the level of the style
+     * @param style the style
+     */
+    public void overrideStyle(int level, Style style) {
+        if (!hasStyleOverrides) {
+            styleCollection = StyleCollection.overriding(styleCollection);
+            hasStyleOverrides = true;
+        }
+        styleCollection.addStyle(level, style);
+        invalidate();
+    }
+
+    /**
+     * get the content version of the slide
+     * The version changes whenever the title or the items change
+     *
+     * @return the content version
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * get a hash of the content of the slide
+     * Slides with the same title and the same items have the same hash
+     *
+     * @return the content hash
+     */
+    public int getContentHash() {
+        int hash = Objects.hashCode(title);
+        for (SlideItem item : items) {
+            hash = 31 * hash + item.getContentKey().hashCode();
+        }
+        return hash;
+    }
+
+    /**
+     * get a SHA-256 digest of the content of the slide, in hex
+     * Unlike the content hash this changes whenever the title or an item
+     * changes, including an image file replaced under the same name, so it
+     * can tell clients whether what they have is still current
+     *
+     * @return the content digest
+     */
+    public String getContentDigest() {
+        int current = version;
+        ContentDigest digest = contentDigest;
+        if (digest == null || digest.version() != current) {
+            MessageDigest sha = newDigest();
+            update(sha, title);
+            for (SlideItem item : items) {
+                update(sha, item.getContentKey());
+            }
+            digest = new ContentDigest(current, HexFormat.of().formatHex(sha.digest()));
+            contentDigest = digest;
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Creates a SHA-256 digest, which every Java runtime provides
+     *
+     * @return the digest
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Adds a text to a digest, preceded by its length so that texts cannot run into each other
+     *
+     * @param sha  the digest
+     * @param text the text, may be null
+     */
+    private static void update(MessageDigest sha, String text) {
+        if (text == null) {
+            sha.update((byte) 0);
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        sha.update(ByteBuffer.allocate(5).put((byte) 1).putInt(bytes.length).array());
+        sha.update(bytes);
+    }
+
+    /**
+     * Checks whether another slide has the same title and the same items
+     * Slides with the same content hash may still differ, so this is checked
+     * before a slide is taken to be unchanged
+     *
+     * @param other the other slide
+     * @return true if the slides show the same content
+     */
+    public boolean hasSameContent(Slide other) {
+        if (!Objects.equals(title, other.title) || items.size() != other.items.size()) {
+            return false;
+        }
+        for (int i = 0; i < items.size(); i++) {
+            if (!items.get(i).getContentKey().equals(other.items.get(i).getContentKey())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * start loading the images of the slide at the resolution needed for an area
+     *
+     * @param area The area the slide will be drawn in
+     * @return a future that completes when all images are available
+     */
+    public CompletableFuture<Void> loadImages(Rectangle area) {
+        float scale = getScale(area);
+        List<CompletableFuture<?>> loads = new ArrayList<>();
+        for (SlideItem slideItem : items) {
+            if (slideItem instanceof BitmapItem bitmapItem) {
+                Style style = styleCollection.getStyle(slideItem.getLevel());
+                loads.add(bitmapItem.loadImage(null, scale, bitmapItem.getVisiblePart(area, scale, style)));
+            }
+        }
+        return CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * load the images of the slide at the resolution needed for an area on the calling thread
+     * Images that cannot be loaded are left out, they are drawn as placeholders
+     *
+     * @param area The area the slide will be drawn in
+     */
+    public void loadImagesNow(Rectangle area) {
+        float scale = getScale(area);
+        for (SlideItem slideItem : items) {
+            if (slideItem instanceof BitmapItem bitmapItem) {
+                Style style = styleCollection.getStyle(slideItem.getLevel());
+                bitmapItem.loadImageNow(scale, bitmapItem.getVisiblePart(area, scale, style));
+            }
+        }
+    }
+
+    /**
+     * start loading the images of the slide at the resolution needed for an area of a device
+     * A scaled device, such as a HiDPI screen, needs the images at more pixels
+     *
+     * @param area          The area the slide will be drawn in
+     * @param configuration The device the slide will be shown on, null for an image
+     * @return a future that completes when all images are available
+     */
+    public CompletableFuture<Void> loadImages(Rectangle area, GraphicsConfiguration configuration) {
+        if (configuration == null) {
+            return loadImages(area);
+        }
+        AffineTransform transform = configuration.getDefaultTransform();
+        return loadImages(new Rectangle(area.x, area.y, (int) Math.ceil(area.width * transform.getScaleX()),
+                (int) Math.ceil(area.height * transform.getScaleY())));
     }
 
     /**
@@ -93,19 +306,58 @@ public class Slide {
      * @param view The view
      */
     public void draw(Graphics g, Rectangle area, ImageObserver view) {
+        getDisplayList(g, area, view).replay(g, view);
+    }
+
+    /**
+     * get the display list for an area
+     * The list is compiled once and reused until the content changes; the lists
+     * of the last few areas are kept, so callers drawing at other sizes do not
+     * throw away each other's lists
+     *
+     * @param g The graphics object
+     * @param area The area to draw in
+     * @param view The view
+     * @return the display list for the area
+     */
+    public DisplayList getDisplayList(Graphics g, Rectangle area, ImageObserver view) {
+        FontRenderContext frc = ((Graphics2D) g).getFontRenderContext();
+        DisplayList list = displayLists.find(compiled -> compiled.isCompiledFor(area, frc));
+        if (list == null) {
+            list = compile(g, area, view);
+            displayLists.add(list);
+        }
+        return list;
+    }
+
+    /**
+     * compile the slide into positioned draw operations
+     *
+     * @param g The graphics object
+     * @param area The area to draw in
+     * @param view The view
+     * @return the compiled display list
+     */
+    private DisplayList compile(Graphics g, Rectangle area, ImageObserver view) {
         float scale = getScale(area);
         int y = area.y;
+        List<DisplayList.DrawOperation> operations = new ArrayList<>();
         //The title is treated separately
-        SlideItem slideItem = new TextItem(0, getTitle());
+        SlideItem slideItem = titleItem;
         Style style = styleCollection.getStyle(slideItem.getLevel());
-        slideItem.draw(area.x, y, scale, g, style, view);
+        slideItem.compile(area.x, y, scale, g, style, view, operations);
         y += slideItem.getBoundingBox(g, view, scale, style).height;
         for (int number = 0; number < getSize(); number++) {
             slideItem = getSlideItems().get(number);
             style = styleCollection.getStyle(slideItem.getLevel());
-            slideItem.draw(area.x, y, scale, g, style, view);
+            if (slideItem instanceof BitmapItem bitmapItem) {
+                bitmapItem.compile(area, y, scale, style, operations);
+            } else {
+                slideItem.compile(area.x, y, scale, g, style, view, operations);
+            }
             y += slideItem.getBoundingBox(g, view, scale, style).height;
         }
+        return new DisplayList(area, ((Graphics2D) g).getFontRenderContext(), operations);
     }
 
     /**
@@ -117,4 +369,13 @@ public class Slide {
     private float getScale(Rectangle area) {
         return Math.min(((float) area.width) / ((float) TextEnums.WIDTH.getValue()), ((float) area.height) / ((float) TextEnums.HEIGHT.getValue()));
     }
+
+    /**
+     * The content digest of a slide at one content version
+     *
+     * @param version the content version
+     * @param digest  the digest in hex
+     */
+    private record ContentDigest(int version, String digest) {
+    }
 }
\ No newline at end of file
@@ -0,0 +1,277 @@
+package main.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+
+/**
+ * SlideIndex is an inverted index over the titles and texts of the slides
+ * Text is split into words of letters and digits and folded to lower case.
+ * Every word maps to the sorted numbers of the slides it occurs on, kept in
+ * an int array. The words are sorted, so a query word matches all words it
+ * is a prefix of; the slides must match every word of the query.
+ * A slide is indexed again only when its content digest has changed.
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+public class SlideIndex {
+    private static final Postings[] NO_WORDS = new Postings[0]; //The words of an empty slide
+    private final HashMap<String, Postings> words = new HashMap<>(); //The slides each word occurs on
+    private final TreeMap<String, Postings> sortedWords = new TreeMap<>(); //The same, sorted for prefix queries
+    private final List<Postings[]> slideWords = new ArrayList<>(); //The distinct words of each slide
+    private final List<String> contentDigests = new ArrayList<>(); //The content digest of each slide when it was indexed
+
+    /**
+     * get the number of slides indexed
+     *
+     * @return the number of slides
+     */
+    public synchronized int getSize() {
+        return slideWords.size();
+    }
+
+    /**
+     * Indexes a slide, replacing the slide that had its number
+     * A slide is appended by giving it the number after the last one; a slide
+     * further on is left out, it is indexed when the slides before it are
+     *
+     * @param number the number of the slide
+     * @param slide  the slide
+     */
+    public synchronized void put(int number, Slide slide) {
+        String contentDigest = slide.getContentDigest();
+        if (number < slideWords.size()) {
+            if (contentDigests.get(number).equals(contentDigest)) {
+                return;
+            }
+            removeWords(number);
+        } else if (number == slideWords.size()) {
+            slideWords.add(NO_WORDS);
+            contentDigests.add(contentDigest);
+        } else {
+            return;
+        }
+        List<Postings> added = new ArrayList<>();
+        WordConsumer indexer = word -> {
+            Postings slides = words.get(word);
+            if (slides == null) {
+                slides = new Postings(word);
+                words.put(word, slides);
+                sortedWords.put(word, slides);
+            }
+            if (slides.add(number)) {
+                added.add(slides);
+            }
+        };
+        if (slide.getTitle() != null) {
+            tokenize(slide.getTitle(), indexer);
+        }
+        for (SlideItem item : slide.getSlideItems()) {
+            if (item instanceof TextItem textItem) {
+                tokenize(textItem.getText(), indexer);
+            }
+        }
+        slideWords.set(number, added.toArray(NO_WORDS));
+        contentDigests.set(number, contentDigest);
+    }
+
+    /**
+     * Removes the slides from a number on
+     *
+     * @param size the number of slides to keep
+     */
+    public synchronized void truncate(int size) {
+        for (int number = slideWords.size() - 1; number >= size; number--) {
+            removeWords(number);
+            slideWords.remove(number);
+            contentDigests.remove(number);
+        }
+    }
+
+    /**
+     * Finds the slides that match a query
+     *
+     * @param query the words to look for, each matching the words it is a prefix of
+     * @return the numbers of the matching slides in ascending order, empty if the query has no words
+     */
+    public synchronized int[] search(String query) {
+        List<String> queryWords = tokenize(query);
+        if (queryWords.isEmpty()) {
+            return new int[0];
+        }
+        BitSet result = null;
+        for (String word : queryWords) {
+            BitSet matches = new BitSet(slideWords.size());
+            for (Postings slides : sortedWords.subMap(word, true, word + Character.MAX_VALUE, false).values()) {
+                slides.addTo(matches);
+            }
+            if (result == null) {
+                result = matches;
+            } else {
+                result.and(matches);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result.stream().toArray();
+    }
+
+    /**
+     * Splits text into lower case words of letters and digits
+     *
+     * @param text the text
+     * @return the words in order, with repeats
+     */
+    public static List<String> tokenize(String text) {
+        List<String> found = new ArrayList<>();
+        tokenize(text, found::add);
+        return found;
+    }
+
+    /**
+     * Splits text into lower case words of letters and digits
+     * The characters are folded while the text is scanned, so each word is copied once
+     *
+     * @param text     the text
+     * @param consumer receives the words in order, with repeats
+     */
+    private static void tokenize(String text, WordConsumer consumer) {
+        char[] word = new char[Math.min(text.length(), 64)];
+        int length = 0;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            char folded = fold(c);
+            if (folded != 0) {
+                if (length == word.length) {
+                    word = Arrays.copyOf(word, 2 * length);
+                }
+                word[length++] = folded;
+            } else if (length > 0) {
+                consumer.accept(new String(word, 0, length));
+                length = 0;
+            }
+        }
+    }
+
+    /**
+     * Folds a character of a word to lower case
+     * ASCII, which most slides are written in, is handled without a table lookup
+     *
+     * @param c the character
+     * @return the folded character, 0 if it is not a letter or digit
+     */
+    private static char fold(char c) {
+        if (c < 128) {
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                return c;
+            }
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : 0;
+        }
+        return Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : 0;
+    }
+
+    /**
+     * Removes a slide from the postings of its words
+     *
+     * @param number the number of the slide
+     */
+    private void removeWords(int number) {
+        for (Postings slides : slideWords.get(number)) {
+            slides.remove(number);
+            if (slides.isEmpty()) {
+                words.remove(slides.word);
+                sortedWords.remove(slides.word);
+            }
+        }
+        slideWords.set(number, NO_WORDS);
+    }
+
+    /**
+     * Receives the words of a text
+     */
+    private interface WordConsumer {
+
+        /**
+         * Receives a word
+         *
+         * @param word the word
+         */
+        void accept(String word);
+    }
+
+    /**
+     * The sorted numbers of the slides a word occurs on
+     */
+    private static class Postings {
+        private final String word; //The word
+        private int[] slides = new int[2]; //The slide numbers, sorted
+        private int size; //The number of slide numbers
+
+        /**
+         * Constructor for Postings
+         *
+         * @param word the word
+         */
+        Postings(String word) {
+            this.word = word;
+        }
+
+        /**
+         * Adds a slide number; appending a number beyond the last one is the quick case
+         *
+         * @param number the slide number
+         * @return false if the slide number was already there
+         */
+        boolean add(int number) {
+            int position = size == 0 || slides[size - 1] < number ? size : Arrays.binarySearch(slides, 0, size, number);
+            if (position >= 0 && position < size) {
+                return false;
+            }
+            position = position < 0 ? -position - 1 : position;
+            if (size == slides.length) {
+                slides = Arrays.copyOf(slides, 2 * size);
+            }
+            System.arraycopy(slides, position, slides, position + 1, size - position);
+            slides[position] = number;
+            size++;
+            return true;
+        }
+
+        /**
+         * Removes a slide number
+         *
+         * @param number the slide number
+         */
+        void remove(int number) {
+            int position = Arrays.binarySearch(slides, 0, size, number);
+            if (position >= 0) {
+                System.arraycopy(slides, position + 1, slides, position, size - position - 1);
+                size--;
+            }
+        }
+
+        /**
+         * @return true if no slide numbers are left
+         */
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * Sets the bits of the slide numbers
+         *
+         * @param bits the bits to set
+         */
+        void addTo(BitSet bits) {
+            for (int i = 0; i < size; i++) {
+                bits.set(slides[i]);
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ import main.util.Style;
 
 import java.awt.*;
 import java.awt.image.ImageObserver;
+import java.util.List;
 
 /**
  * The abstract class for items in a slide
@@ -58,4 +59,31 @@ public abstract class SlideItem {
 
     public abstract void draw(int x, int y, float scale,
                               Graphics g, Style style, ImageObserver observer);
+
+    /**
+     * get a description of what the item shows
+     * Items that show the same thing have equal content keys
+     *
+     * @return the content key
+     */
+    public String getContentKey() {
+        return toString();
+    }
+
+    /**
+     * compiles the item into positioned draw operations
+     * Items without a compiled form of their own are replayed through draw
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param scale the scale
+     * @param g the graphics object
+     * @param style the style
+     * @param observer the image observer
+     * @param operations the list to add the operations to
+     */
+    public void compile(int x, int y, float scale, Graphics g, Style style,
+                        ImageObserver observer, List<DisplayList.DrawOperation> operations) {
+        operations.add(new DisplayList.ItemOperation(this, x, y, scale, style));
+    }
 }
\ No newline at end of file
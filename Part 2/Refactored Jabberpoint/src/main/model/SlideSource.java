@@ -0,0 +1,27 @@
+package main.model;
+
+/**
+ * A SlideSource creates the slides of a presentation on demand,
+ * so that a presentation does not need to hold all its slides
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+public interface SlideSource {
+
+    /**
+     * get the number of slides the source can create
+     *
+     * @return the number of slides
+     */
+    int getSize();
+
+    /**
+     * creates the slide with the given number
+     * This may be called from several threads at the same time
+     *
+     * @param number the number of the slide, between 0 and getSize() - 1
+     * @return the slide
+     */
+    Slide loadSlide(int number);
+}
@@ -12,6 +12,7 @@ import java.awt.geom.Rectangle2D;
 import java.awt.image.ImageObserver;
 import java.text.AttributedString;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -24,6 +25,8 @@ import java.util.List;
 
 public class TextItem extends SlideItem {
     private final String text; // The text
+    private static final int LAYOUTS = 4; // The most layouts kept, one per (style, scale, render context)
+    private final RecentValues<LayoutCache> layoutCaches = new RecentValues<>(LAYOUTS); // The last layouts made
 
     /**
      * Constructor for TextItem
@@ -43,8 +46,19 @@ public class TextItem extends SlideItem {
      * @return the AttributedString for the Item
      */
     public AttributedString getAttributedString(Style style) {
+        return getAttributedString(style, 1);
+    }
+
+    /**
+     * Attributed String in the font of the style scaled to the given scale
+     *
+     * @param style the style
+     * @param scale the scale
+     * @return the AttributedString for the Item
+     */
+    public AttributedString getAttributedString(Style style, float scale) {
         AttributedString attrStr = new AttributedString(getText());
-        attrStr.addAttribute(TextAttribute.FONT, style.getFont(), 0, text.length());
+        attrStr.addAttribute(TextAttribute.FONT, style.getDerivedFont(scale), 0, text.length());
         return attrStr;
     }
 
@@ -78,6 +92,8 @@ public class TextItem extends SlideItem {
 
     /**
      * Returns the layouts of the text
+     * The layouts of the last few styles, scales and font render contexts
+     * are cached, so drawing at another size does not throw away the others
      *
      * @param g     the graphics object
      * @param s     the style
@@ -85,17 +101,37 @@ public class TextItem extends SlideItem {
      * @return List<TextLayout>
      */
     private List<TextLayout> getLayouts(Graphics g, Style s, float scale) {
+        FontRenderContext frc = ((Graphics2D) g).getFontRenderContext();
+        LayoutCache cache = layoutCaches.find(made -> made.matches(s, scale, frc));
+        if (cache != null) {
+            return cache.layouts();
+        }
+        List<TextLayout> layouts = createLayouts(frc, s, scale);
+        layoutCaches.add(new LayoutCache(s, scale, frc, layouts));
+        return layouts;
+    }
+
+    /**
+     * Breaks the text into lines
+     *
+     * @param frc   the font render context
+     * @param s     the style
+     * @param scale the scale
+     * @return List<TextLayout>
+     */
+    private List<TextLayout> createLayouts(FontRenderContext frc, Style s, float scale) {
+        if (getText().isEmpty()) {
+            return Collections.emptyList();
+        }
         List<TextLayout> layouts = new ArrayList<>();
-        AttributedString attrStr = getAttributedString(s);
-        Graphics2D g2d = (Graphics2D) g;
-        FontRenderContext frc = g2d.getFontRenderContext();
+        AttributedString attrStr = getAttributedString(s, scale);
         LineBreakMeasurer measurer = new LineBreakMeasurer(attrStr.getIterator(), frc);
         float wrappingWidth = (TextEnums.WIDTH.getValue() - s.getIndent()) * scale;
         while (measurer.getPosition() < getText().length()) {
             TextLayout layout = measurer.nextLayout(wrappingWidth);
             layouts.add(layout);
         }
-        return layouts;
+        return Collections.unmodifiableList(layouts);
     }
 
     /**
@@ -117,19 +153,39 @@ public class TextItem extends SlideItem {
      */
     public void draw(int x, int y, float scale, Graphics g,
                      Style myStyle, ImageObserver o) {
+        List<DisplayList.DrawOperation> operations = new ArrayList<>();
+        compile(x, y, scale, g, myStyle, o, operations);
+        Graphics2D g2d = (Graphics2D) g;
+        for (DisplayList.DrawOperation operation : operations) {
+            operation.replay(g2d, o);
+        }
+    }
+
+    /**
+     * Compiles the text into a color change and one text run per line
+     *
+     * @param x          the x coordinate
+     * @param y          the y coordinate
+     * @param scale      the scale
+     * @param g          the graphics object
+     * @param myStyle    the style
+     * @param o          the image observer
+     * @param operations the list to add the operations to
+     */
+    @Override
+    public void compile(int x, int y, float scale, Graphics g, Style myStyle,
+                        ImageObserver o, List<DisplayList.DrawOperation> operations) {
         if (text == null || text.isEmpty()) {
             return;
         }
         List<TextLayout> layouts = getLayouts(g, myStyle, scale);
         Point pen = new Point(x + (int) (myStyle.getIndent() * scale),
                 y + (int) (myStyle.getLeading() * scale));
-        Graphics2D g2d = (Graphics2D) g;
-        g2d.setColor(myStyle.getColor());
+        operations.add(new DisplayList.ColorOperation(myStyle.getColor()));
         for (TextLayout layout : layouts) {
             pen.y += (int) layout.getAscent();
-            layout.draw(g2d, pen.x, pen.y);
+            operations.add(new DisplayList.TextRunOperation(layout, pen.x, pen.y));
             pen.y += (int) layout.getDescent();
-
         }
     }
 
@@ -139,4 +195,27 @@ public class TextItem extends SlideItem {
     public String toString() {
         return "TextItem[" + getLevel() + "," + getText() + "]";
     }
+
+    /**
+     * The line layouts for one style, scale and font render context
+     *
+     * @param style   the style
+     * @param scale   the scale
+     * @param frc     the font render context
+     * @param layouts the layouts
+     */
+    private record LayoutCache(Style style, float scale, FontRenderContext frc, List<TextLayout> layouts) {
+
+        /**
+         * Checks whether the cached layouts can be reused
+         *
+         * @param style the style
+         * @param scale the scale
+         * @param frc   the font render context
+         * @return true if the layouts were made for these arguments
+         */
+        boolean matches(Style style, float scale, FontRenderContext frc) {
+            return this.style == style && Float.compare(this.scale, scale) == 0 && this.frc.equals(frc);
+        }
+    }
 }
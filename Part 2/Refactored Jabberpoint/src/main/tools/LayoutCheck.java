@@ -0,0 +1,114 @@
+package main.tools;
+
+import main.model.Slide;
+import main.model.SlideItem;
+import main.model.TextItem;
+import main.util.Style;
+import main.util.TextEnums;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.text.AttributedString;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LayoutCheck checks that the line layouts of text items are reused
+ * A slide of text items is painted frame after frame at a few sizes, the way
+ * the viewer does during a resize, and every item is also drawn and measured
+ * on its own. Each item must break its text into lines once per scale only.
+ * The shaping passes are counted through the attributed strings the items make.
+ * Usage: java main.tools.LayoutCheck [items [frames]]
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+public class LayoutCheck {
+    private static final int DEFAULT_ITEMS = 40; //The text items on the slide
+    private static final int DEFAULT_FRAMES = 20; //The frames painted at each size
+    private static final Dimension[] SIZES = { //The sizes painted at, the first one again at the end
+            new Dimension(1200, 800), new Dimension(800, 533), new Dimension(600, 400), new Dimension(1200, 800)};
+
+    /**
+     * Constructor for LayoutCheck
+     */
+    private LayoutCheck() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Paints the slide and prints the shaping passes counted
+     *
+     * @param argv optionally the number of items and the frames per size
+     */
+    public static void main(String[] argv) {
+        System.setProperty("java.awt.headless", "true");
+        int items = argv.length > 0 ? Integer.parseInt(argv[0]) : DEFAULT_ITEMS;
+        int frames = argv.length > 1 ? Integer.parseInt(argv[1]) : DEFAULT_FRAMES;
+        AtomicInteger passes = new AtomicInteger();
+        Slide slide = new Slide();
+        slide.setTitle("Layout check");
+        for (int number = 0; number < items; number++) {
+            slide.appendText(new CountingItem(1 + number % 4,
+                    "Bullet " + number + " has enough words in it to wrap over more than one line when it is drawn",
+                    passes));
+        }
+        Set<Float> scales = new HashSet<>();
+        long start = System.nanoTime();
+        for (Dimension size : SIZES) {
+            BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+            Rectangle area = new Rectangle(size);
+            float scale = Math.min((float) size.width / TextEnums.WIDTH.getValue(),
+                    (float) size.height / TextEnums.HEIGHT.getValue());
+            scales.add(scale);
+            for (int frame = 0; frame < frames; frame++) {
+                Graphics2D g = image.createGraphics();
+                slide.draw(g, area, null);
+                for (SlideItem item : slide.getSlideItems()) {
+                    Style style = slide.getStyleCollection().getStyle(item.getLevel());
+                    item.draw(0, 0, scale, g, style, null);
+                    item.getBoundingBox(g, null, scale, style);
+                }
+                g.dispose();
+            }
+        }
+        double millis = (System.nanoTime() - start) / 1e6;
+        int expected = items * scales.size();
+        System.out.printf("%d items, %d scales, %d frames: %d shaping passes, expected %d: %s (%.0f ms)%n",
+                items, scales.size(), frames * SIZES.length, passes.get(), expected,
+                passes.get() == expected ? "OK" : "FAILED", millis);
+    }
+
+    /**
+     * A text item that counts the attributed strings it makes, one for every shaping pass
+     */
+    private static class CountingItem extends TextItem {
+        private final AtomicInteger passes; //The counter of shaping passes
+
+        /**
+         * Constructor for CountingItem
+         *
+         * @param level  the level of the item
+         * @param text   the text of the item
+         * @param passes the counter of shaping passes
+         */
+        CountingItem(int level, String text, AtomicInteger passes) {
+            super(level, text);
+            this.passes = passes;
+        }
+
+        /**
+         * Counts the pass and makes the attributed string
+         *
+         * @param style the style
+         * @param scale the scale
+         * @return the AttributedString for the Item
+         */
+        @Override
+        public AttributedString getAttributedString(Style style, float scale) {
+            passes.incrementAndGet();
+            return super.getAttributedString(style, scale);
+        }
+    }
+}
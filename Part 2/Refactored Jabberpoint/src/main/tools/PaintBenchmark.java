@@ -0,0 +1,137 @@
+package main.tools;
+
+import main.model.BitmapItem;
+import main.model.Slide;
+import main.util.Style;
+import main.util.TextEnums;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Logger;
+
+/**
+ * PaintBenchmark measures the time to paint a slide with a large photo
+ * The slide is painted frame after frame at a few sizes, from the viewer down to
+ * a thumbnail: first by drawing the full-size image scaled to its place on every
+ * frame, then the way the slide draws it, from the copy already scaled for that
+ * size. The photo is made up when no image is given.
+ * Usage: java main.tools.PaintBenchmark [image [frames]]
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+public class PaintBenchmark {
+    private static final Logger logger = Logger.getLogger(PaintBenchmark.class.getName()); //Logger
+    private static final int DEFAULT_FRAMES = 1000; //The frames painted in each round
+    private static final int WARM_UP = 500; //The frames painted before timing
+    private static final Dimension PHOTO = new Dimension(2400, 1800); //The size of the made-up photo
+    private static final Dimension[] SIZES = { //The sizes painted at
+            new Dimension(1200, 800), new Dimension(600, 400), new Dimension(300, 200), new Dimension(160, 107)};
+
+    /**
+     * Constructor for PaintBenchmark
+     */
+    private PaintBenchmark() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Paints the slide both ways at every size and prints the time per frame
+     *
+     * @param argv optionally the image and the number of frames
+     */
+    public static void main(String[] argv) {
+        System.setProperty("java.awt.headless", "true");
+        try {
+            int frames = argv.length > 1 ? Integer.parseInt(argv[1]) : DEFAULT_FRAMES;
+            Path image;
+            if (argv.length > 0) {
+                image = Path.of(argv[0]);
+            } else {
+                image = Files.createTempFile("photo", ".jpg");
+                image.toFile().deleteOnExit();
+                writePhoto(image);
+            }
+            BufferedImage full = ImageIO.read(image.toFile());
+            for (Dimension size : SIZES) {
+                BitmapItem item = new BitmapItem(1, image.toString());
+                Slide slide = new Slide();
+                slide.appendText(item);
+                Rectangle area = new Rectangle(size);
+                BufferedImage target = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+                float scale = Math.min((float) size.width / TextEnums.WIDTH.getValue(),
+                        (float) size.height / TextEnums.HEIGHT.getValue());
+                Style style = slide.getStyleCollection().getStyle(item.getLevel());
+                Graphics2D measure = target.createGraphics();
+                Rectangle box = item.getBoundingBox(measure, null, scale, style);
+                measure.dispose();
+                double before = time(frames, g -> g.drawImage(full, box.x, box.y, box.width, box.height, null), target);
+                slide.loadImagesNow(area);
+                double after = time(frames, g -> slide.draw(g, area, null), target);
+                System.out.printf("%dx%d image on a %dx%d slide, drawn %dx%d: %.3f ms per frame scaling the full "
+                                + "image, %.3f ms from the scaled copy (%.1fx)%n", full.getWidth(), full.getHeight(),
+                        size.width, size.height, box.width, box.height, before, after, before / after);
+            }
+        } catch (NumberFormatException | IOException e) {
+            logger.info("Error running paint benchmark: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Paints frames and measures them
+     *
+     * @param frames  the number of frames timed
+     * @param painter paints one frame
+     * @param target  the image painted into
+     * @return the milliseconds per frame
+     */
+    private static double time(int frames, Painter painter, BufferedImage target) {
+        long start = 0;
+        for (int frame = -WARM_UP; frame < frames; frame++) {
+            if (frame == 0) {
+                start = System.nanoTime();
+            }
+            Graphics2D g = target.createGraphics();
+            painter.paint(g);
+            g.dispose();
+        }
+        return (System.nanoTime() - start) / 1e6 / frames;
+    }
+
+    /**
+     * Writes a made-up photo with smooth gradients and detail
+     *
+     * @param file the file to write to
+     * @throws IOException if the file cannot be written
+     */
+    private static void writePhoto(Path file) throws IOException {
+        BufferedImage photo = new BufferedImage(PHOTO.width, PHOTO.height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = photo.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, Color.blue, PHOTO.width, PHOTO.height, Color.orange));
+        g.fillRect(0, 0, PHOTO.width, PHOTO.height);
+        g.setColor(Color.white);
+        for (int x = 0; x < PHOTO.width; x += 40) {
+            g.drawLine(x, 0, PHOTO.width - x, PHOTO.height);
+        }
+        g.dispose();
+        ImageIO.write(photo, "jpg", file.toFile());
+    }
+
+    /**
+     * Paints one frame
+     */
+    @FunctionalInterface
+    private interface Painter {
+
+        /**
+         * Paints the frame
+         *
+         * @param g the graphics to paint with
+         */
+        void paint(Graphics2D g);
+    }
+}
@@ -0,0 +1,188 @@
+package main.tools;
+
+import main.accessor.Accessors;
+import main.exception.AccessorException;
+import main.model.Presentation;
+import main.ui.SlideServer;
+
+import java.awt.*;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * ServerLoadTest measures how a SlideServer holds up under many clients
+ * The presentation is served on a free port in this process. Every client
+ * asks for random slides; the first round fetches the images, the second
+ * sends back the ETags of the first in If-None-Match. The throughput, the
+ * status counts and the latency percentiles of each round are printed.
+ * Usage: java main.tools.ServerLoadTest presentation [clients [requests per client]]
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+public class ServerLoadTest {
+    private static final Logger logger = Logger.getLogger(ServerLoadTest.class.getName()); //Logger
+    private static final int DEFAULT_CLIENTS = 100; //Concurrent clients
+    private static final int DEFAULT_REQUESTS = 50; //Requests per client in a round
+    private static final Dimension SIZE = new Dimension(1200, 800); //The size of the served slides
+
+    /**
+     * Constructor for ServerLoadTest
+     */
+    private ServerLoadTest() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Serves a presentation and runs the load rounds against it
+     *
+     * @param argv the presentation, then optionally the clients and the requests per client
+     */
+    public static void main(String[] argv) {
+        System.setProperty("java.awt.headless", "true");
+        if (argv.length < 1 || argv.length > 3) {
+            System.out.println("Usage: ServerLoadTest presentation [clients [requests per client]]");
+            return;
+        }
+        SlideServer server = null;
+        try {
+            int clients = argv.length > 1 ? Integer.parseInt(argv[1]) : DEFAULT_CLIENTS;
+            int requests = argv.length > 2 ? Integer.parseInt(argv[2]) : DEFAULT_REQUESTS;
+            Presentation presentation = new Presentation();
+            Accessors.reader(argv[0]).loadFile(presentation, argv[0]);
+            server = new SlideServer(presentation, SIZE);
+            String base = "http://localhost:" + server.start(0);
+            Map<Integer, String> etags = new ConcurrentHashMap<>();
+            runRound("fetch", base, presentation.getSize(), clients, requests, etags, false);
+            runRound("conditional", base, presentation.getSize(), clients, requests, etags, true);
+        } catch (NumberFormatException | AccessorException | IOException e) {
+            logger.info("Error running load test: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+
+    /**
+     * Lets the clients send their requests at the same time and prints the results
+     *
+     * @param name        the name of the round
+     * @param base        the address of the server
+     * @param slides      the number of slides served
+     * @param clients     the number of concurrent clients
+     * @param requests    the requests per client
+     * @param etags       the ETag last received for each slide number
+     * @param conditional whether to send the known ETags in If-None-Match
+     * @throws InterruptedException if the round is interrupted
+     */
+    private static void runRound(String name, String base, int slides, int clients, int requests,
+                                 Map<Integer, String> etags, boolean conditional) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        CountDownLatch done = new CountDownLatch(clients);
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        Counts counts = new Counts(new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder());
+        long start = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            Random random = new Random(c);
+            pool.execute(() -> {
+                try {
+                    for (int i = 0; i < requests; i++) {
+                        int number = 1 + random.nextInt(slides);
+                        send(client, base, number, conditional ? etags.get(number) : null, etags, latencies, counts);
+                    }
+                } catch (IOException e) {
+                    counts.errors().increment();
+                    logger.info("Error sending request: " + e.getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        if (sorted.length == 0) {
+            System.out.println(name + ": no responses");
+            return;
+        }
+        System.out.printf("%s, %d clients: %d requests in %.2f s = %.0f req/s; 200=%d 304=%d errors=%d; %.1f MB; "
+                        + "p50 %.1f ms p99 %.1f ms max %.1f ms%n",
+                name, clients, sorted.length, seconds, sorted.length / seconds, counts.ok().sum(),
+                counts.notModified().sum(), counts.errors().sum(), counts.bytes().sum() / 1e6,
+                percentile(sorted, 0.5), percentile(sorted, 0.99), sorted[sorted.length - 1] / 1e6);
+    }
+
+    /**
+     * Requests one slide and records the outcome
+     *
+     * @param client    the HTTP client
+     * @param base      the address of the server
+     * @param number    the slide number, counting from 1
+     * @param etag      the ETag to send in If-None-Match, null for none
+     * @param etags     receives the ETag of a fetched image
+     * @param latencies receives the latency in nanoseconds
+     * @param counts    the counters to update
+     * @throws IOException          if the request fails
+     * @throws InterruptedException if the request is interrupted
+     */
+    private static void send(HttpClient client, String base, int number, String etag, Map<Integer, String> etags,
+                             ConcurrentLinkedQueue<Long> latencies, Counts counts) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + "/slides/" + number + ".png"));
+        if (etag != null) {
+            request.header("If-None-Match", etag);
+        }
+        long start = System.nanoTime();
+        HttpResponse<byte[]> response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        latencies.add(System.nanoTime() - start);
+        if (response.statusCode() == 200) {
+            counts.ok().increment();
+            counts.bytes().add(response.body().length);
+            response.headers().firstValue("ETag").ifPresent(received -> etags.put(number, received));
+        } else if (response.statusCode() == 304) {
+            counts.notModified().increment();
+        } else {
+            counts.errors().increment();
+        }
+    }
+
+    /**
+     * get a percentile of sorted latencies
+     *
+     * @param sorted   the latencies in nanoseconds, ascending
+     * @param fraction the percentile as a fraction
+     * @return the latency in milliseconds
+     */
+    private static double percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))] / 1e6;
+    }
+
+    /**
+     * The counters of a round
+     *
+     * @param ok          the responses with an image
+     * @param notModified the responses telling the client its image is current
+     * @param errors      the failed requests and error responses
+     * @param bytes       the image bytes received
+     */
+    private record Counts(LongAdder ok, LongAdder notModified, LongAdder errors, LongAdder bytes) {
+    }
+}
@@ -0,0 +1,124 @@
+package main.tools;
+
+import main.model.Presentation;
+import main.model.Slide;
+import main.model.TextItem;
+import main.util.Style;
+import main.util.StyleCollection;
+
+import java.awt.*;
+import java.lang.ref.Reference;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * StyleFootprint measures what the styles of a large deck cost
+ * A synthetic deck is built twice: once with the style sheet of the presentation
+ * shared by all slides and a style overridden on every hundredth slide, and once
+ * with a style collection of its own for every slide. For each deck the distinct
+ * style collections, styles and fonts the slides reach are counted, and the heap
+ * the deck takes is printed.
+ * Usage: java main.tools.StyleFootprint [slides]
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+public class StyleFootprint {
+    private static final int DEFAULT_SLIDES = 5000; //The slides in the deck
+    private static final int ITEMS = 10; //The text items on every slide
+    private static final int OVERRIDE_EVERY = 100; //Every how many slides a style is overridden
+    private static final int LEVELS = 5; //The levels of the default style sheet
+
+    /**
+     * Constructor for StyleFootprint
+     */
+    private StyleFootprint() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Builds the decks and prints their footprint
+     *
+     * @param argv optionally the number of slides
+     */
+    public static void main(String[] argv) {
+        System.setProperty("java.awt.headless", "true");
+        int slides = argv.length > 0 ? Integer.parseInt(argv[0]) : DEFAULT_SLIDES;
+        long empty = usedHeap();
+        Presentation shared = buildDeck(slides, false);
+        long sharedBytes = usedHeap() - empty;
+        report("shared style sheet", shared, sharedBytes, 1 + slides / OVERRIDE_EVERY);
+        Presentation own = buildDeck(slides, true);
+        long ownBytes = usedHeap() - empty - sharedBytes;
+        report("own style collection", own, ownBytes, slides);
+        System.out.printf("the shared style sheet saves %.0f bytes per slide%n",
+                (double) (ownBytes - sharedBytes) / slides);
+        Reference.reachabilityFence(shared);
+    }
+
+    /**
+     * Builds a synthetic deck
+     *
+     * @param slides the number of slides
+     * @param own    true to give every slide a style collection of its own
+     * @return the deck
+     */
+    private static Presentation buildDeck(int slides, boolean own) {
+        Presentation presentation = new Presentation();
+        for (int number = 0; number < slides; number++) {
+            Slide slide = new Slide();
+            slide.setTitle("Slide " + number);
+            for (int item = 0; item < ITEMS; item++) {
+                slide.appendText(new TextItem(1 + item % 4, "Item " + item + " of slide " + number));
+            }
+            presentation.append(slide);
+            if (own) {
+                slide.setStyleSheet(new StyleCollection());
+            } else if (number % OVERRIDE_EVERY == 0) {
+                slide.overrideStyle(1, new Style(20, Color.red, 40, 10));
+            }
+        }
+        return presentation;
+    }
+
+    /**
+     * Counts the distinct style objects of a deck and prints them with its heap
+     *
+     * @param name         the name of the deck
+     * @param presentation the deck
+     * @param bytes        the heap the deck takes
+     * @param collections  the number of style collections expected
+     */
+    private static void report(String name, Presentation presentation, long bytes, int collections) {
+        Set<StyleCollection> styleCollections = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Style> styles = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Font> fonts = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int number = 0; number < presentation.getSize(); number++) {
+            StyleCollection styleCollection = presentation.getSlide(number).getStyleCollection();
+            styleCollections.add(styleCollection);
+            for (int level = 0; level < LEVELS; level++) {
+                Style style = styleCollection.getStyle(level);
+                styles.add(style);
+                fonts.add(style.getFont());
+            }
+        }
+        System.out.printf("%s, %d slides: %d style collections (expected %d), %d styles, %d fonts; "
+                        + "%.1f MB, %.0f bytes per slide%n",
+                name, presentation.getSize(), styleCollections.size(), collections, styles.size(), fonts.size(),
+                bytes / 1e6, (double) bytes / presentation.getSize());
+    }
+
+    /**
+     * get the heap in use after a garbage collection
+     *
+     * @return the used heap in bytes
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
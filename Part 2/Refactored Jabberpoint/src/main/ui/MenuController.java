@@ -2,17 +2,14 @@ package main.ui;
 
 
 import main.JabberPoint;
-import main.accessor.XMLReadAccessor;
+import main.accessor.Accessors;
 import main.accessor.XMLWriteAccessor;
-import main.exception.AccessorException;
 import main.util.StringResources;
 import main.util.TextEnums;
 
 import javax.swing.*;
 import java.awt.*;
-import java.io.IOException;
 import java.io.Serial;
-import java.util.logging.Logger;
 
 /**
  * MenuController handles menu events for the SlideViewerComponent
@@ -24,12 +21,12 @@ public class MenuController extends MenuBar {
 
     @Serial
     private static final long serialVersionUID = 227L; //Needed for Serializable
-    private static final Logger logger = Logger.getLogger(MenuController.class.getName()); //Logger
     private final JFrame parentFrame; //The frame, only used as parent for the Dialogs
     private final SlideViewerComponent slideViewerComponent; //The SlideViewerComponent to be controlled
     private final Menu fileMenu = new Menu(TextEnums.FILE.getName()); //The file menu
     private final Menu viewMenu = new Menu(TextEnums.VIEW.getName()); //The view menu
     private final Menu helpMenu = new Menu(TextEnums.HELP.getName()); //The help menu
+    private final transient XMLWriteAccessor xmlWriteAccessor = new XMLWriteAccessor(); //Saves the presentation, reusing the XML of unchanged slides
     private MenuItem menuItem; //A menu item
 
 
@@ -52,6 +49,8 @@ public class MenuController extends MenuBar {
         nextSlide();
         prevSlide();
         navSlide();
+        findOption();
+        thumbnailsOption();
         aboutOption();
         setHelpMenu(helpMenu);//Needed for portability (Motif, etc.).
     }
@@ -75,13 +74,8 @@ public class MenuController extends MenuBar {
         fileMenu.add(menuItem);
         menuItem.addActionListener(actionEvent -> {
             slideViewerComponent.clear();
-            XMLReadAccessor xmlReadAccessor = new XMLReadAccessor();
-            try {
-                xmlReadAccessor.loadFile(slideViewerComponent.getPresentation(), StringResources.TEST_FILE);
-            } catch (IOException | AccessorException e) {
-                logger.info("Error loading file: " + e.getMessage());
-            }
-            slideViewerComponent.setSlideNumber(0);
+            slideViewerComponent.getPresentation().loadInBackground(Accessors.reader(StringResources.TEST_FILE), StringResources.TEST_FILE);
+            slideViewerComponent.getPresentation().watchSource(Accessors.reader(StringResources.TEST_FILE), StringResources.TEST_FILE);
             parentFrame.repaint();
         });
     }
@@ -93,14 +87,8 @@ public class MenuController extends MenuBar {
     public void saveOption() {
         menuItem = mkMenuItem(TextEnums.SAVE.getName());
         fileMenu.add(menuItem);
-        menuItem.addActionListener(actionEvent -> {
-            XMLWriteAccessor xmlWriteAccessor = new XMLWriteAccessor();
-            try {
-                xmlWriteAccessor.saveFile(slideViewerComponent.getPresentation(), StringResources.SAVE_FILE);
-            } catch (IOException | AccessorException e) {
-                logger.info("Error saving file: " + e.getMessage());
-            }
-        });
+        menuItem.addActionListener(actionEvent ->
+                slideViewerComponent.getPresentation().saveInBackground(xmlWriteAccessor, StringResources.SAVE_FILE));
     }
 
     /**
@@ -159,6 +147,26 @@ public class MenuController extends MenuBar {
         });
     }
 
+    /**
+     * Find option
+     * Jumps to the slides that contain the words typed
+     */
+    public void findOption() {
+        menuItem = mkMenuItem(TextEnums.FIND.getName());
+        viewMenu.add(menuItem);
+        menuItem.addActionListener(actionEvent -> SearchBox.showDialog(parentFrame, slideViewerComponent));
+    }
+
+    /**
+     * Thumbnails option
+     * Shows all slides as thumbnails
+     */
+    public void thumbnailsOption() {
+        menuItem = mkMenuItem(TextEnums.THUMBNAILS.getName());
+        viewMenu.add(menuItem);
+        menuItem.addActionListener(actionEvent -> SlideSorter.showDialog(parentFrame, slideViewerComponent));
+    }
+
     /**
      * About option
      */
@@ -0,0 +1,179 @@
+package main.ui;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.io.Serial;
+import java.util.Arrays;
+
+/**
+ * SearchBox finds slides by the words on them
+ * The viewer jumps to the first matching slide from the current one on
+ * while the query is typed; Enter goes to the next match and Shift+Enter
+ * to the previous one. Escape closes the box. The slides of a large deck
+ * are indexed from when the box is opened; while that is still running the
+ * matches found so far are shown, and they are brought up to date when the
+ * indexing is done.
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+public class SearchBox extends JDialog {
+    @Serial
+    private static final long serialVersionUID = 229L; //Serial version UID
+    private static final int COLUMNS = 30; //Width of the query field in characters
+    private final transient SlideViewerComponent viewer; //Shows the matching slides
+    private final JTextField queryField = new JTextField(COLUMNS); //The query
+    private final JLabel status = new JLabel(" "); //Tells which match is shown
+    private final transient ChangeListener indexListener = e -> indexChanged(); //Refreshes partial matches
+    private int[] matches = new int[0]; //The numbers of the matching slides, ascending
+    private volatile boolean partial = false; //Whether the matches are from a partial index
+
+    /**
+     * Constructor for SearchBox
+     *
+     * @param parent the frame of the viewer
+     * @param viewer the viewer that shows the matching slides
+     */
+    public SearchBox(JFrame parent, SlideViewerComponent viewer) {
+        super(parent, "Find", false);
+        this.viewer = viewer;
+        setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        queryField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                search();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                search();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                search();
+            }
+        });
+        queryField.addActionListener(e -> step((e.getModifiers() & ActionEvent.SHIFT_MASK) != 0 ? -1 : 1));
+        getRootPane().registerKeyboardAction(e -> dispose(), KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0),
+                JComponent.WHEN_IN_FOCUSED_WINDOW);
+        viewer.addChangeListener(indexListener);
+        viewer.getPresentation().indexInBackground();
+        getContentPane().add(queryField, BorderLayout.CENTER);
+        getContentPane().add(status, BorderLayout.SOUTH);
+        pack();
+        setLocationRelativeTo(parent);
+    }
+
+    /**
+     * Shows a search box for a viewer
+     *
+     * @param parent the frame of the viewer
+     * @param viewer the viewer
+     */
+    public static void showDialog(JFrame parent, SlideViewerComponent viewer) {
+        new SearchBox(parent, viewer).setVisible(true);
+    }
+
+    /**
+     * Stops following the viewer and closes the box
+     */
+    @Override
+    public void dispose() {
+        viewer.removeChangeListener(indexListener);
+        super.dispose();
+    }
+
+    /**
+     * Searches for the query and shows the first match from the current slide on
+     */
+    private void search() {
+        partial = !viewer.getPresentation().isIndexed();
+        matches = viewer.getPresentation().search(queryField.getText());
+        int current = Math.max(0, viewer.getPresentation().getCurrentSlideNumber());
+        for (int match : matches) {
+            if (match >= current) {
+                show(match);
+                return;
+            }
+        }
+        if (matches.length > 0) {
+            show(matches[0]);
+        } else {
+            status.setText(queryField.getText().isBlank() ? " " : partial ? "No matches so far" : "No matches");
+        }
+    }
+
+    /**
+     * Searches again once the slides that were still being indexed are done
+     * The viewer tells its listeners from other threads too, so the search is done on the event thread.
+     * A match that is shown stays shown; without one the first match is shown.
+     */
+    private void indexChanged() {
+        if (!partial || !viewer.getPresentation().isIndexed()) {
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            if (!partial || !isDisplayable()) {
+                return;
+            }
+            if (matches.length == 0) {
+                search();
+                return;
+            }
+            partial = false;
+            matches = viewer.getPresentation().search(queryField.getText());
+            showStatus(viewer.getPresentation().getCurrentSlideNumber());
+        });
+    }
+
+    /**
+     * Shows the next or previous match, wrapping around at the ends
+     *
+     * @param direction 1 for the next match, -1 for the previous one
+     */
+    private void step(int direction) {
+        if (matches.length == 0) {
+            return;
+        }
+        int current = viewer.getPresentation().getCurrentSlideNumber();
+        int position = Arrays.binarySearch(matches, current);
+        if (position < 0) {
+            position = direction > 0 ? -position - 2 : -position - 1;
+        }
+        show(matches[Math.floorMod(position + direction, matches.length)]);
+    }
+
+    /**
+     * Shows a matching slide
+     *
+     * @param slideNumber the number of the slide
+     */
+    private void show(int slideNumber) {
+        if (slideNumber != viewer.getPresentation().getCurrentSlideNumber()) {
+            viewer.setSlideNumber(slideNumber);
+        }
+        showStatus(slideNumber);
+    }
+
+    /**
+     * Tells which match is shown
+     *
+     * @param slideNumber the number of the slide shown
+     */
+    private void showStatus(int slideNumber) {
+        int position = Arrays.binarySearch(matches, slideNumber);
+        String found = partial ? " so far" : "";
+        if (position < 0) {
+            status.setText(String.format("%d matches%s", matches.length, found));
+        } else {
+            status.setText(String.format("Slide %d: match %d of %d%s", slideNumber + 1, position + 1,
+                    matches.length, found));
+        }
+    }
+}
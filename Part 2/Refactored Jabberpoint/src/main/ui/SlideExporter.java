@@ -0,0 +1,201 @@
+package main.ui;
+
+import main.model.Presentation;
+import main.model.Slide;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.FileImageOutputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Serial;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SlideExporter renders all slides of a presentation to PNG files
+ * The slides are rendered offscreen, so this also works headless. They are
+ * split over a work-stealing pool, so slides with many images do not hold
+ * up the others. The images of a slide are decoded by the worker that renders
+ * it, so image-heavy exports use every worker rather than the small shared
+ * decoder pool. Each image is encoded straight into its file, and the
+ * render and encode time of every slide is reported.
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+public class SlideExporter {
+    private static final Color BGCOLOR = Color.white; //Background color
+    private static final String FORMAT = "png"; //The image format written
+    private static final int DEFAULT_THREADS = Integer.getInteger("jabberpoint.exportThreads",
+            Runtime.getRuntime().availableProcessors()); //Slides rendered at the same time
+    private final Presentation presentation; //The presentation to export
+    private final Dimension size; //The size of the images
+    private final Path directory; //The directory the images are written to
+    private final PrintStream report; //Receives the timings
+    private final LongAdder renderNanos = new LongAdder(); //Time spent rendering, over all threads
+    private final LongAdder encodeNanos = new LongAdder(); //Time spent encoding, over all threads
+    private String nameFormat; //The file name of a slide, formatted with its number
+
+    /**
+     * Constructor for SlideExporter
+     *
+     * @param presentation the presentation to export
+     * @param size         the size of the images
+     * @param directory    the directory the images are written to
+     * @param report       receives the timings
+     */
+    public SlideExporter(Presentation presentation, Dimension size, Path directory, PrintStream report) {
+        this.presentation = presentation;
+        this.size = new Dimension(size);
+        this.directory = directory;
+        this.report = report;
+    }
+
+    /**
+     * Exports all slides on the default number of threads
+     *
+     * @return the number of slides exported per second
+     * @throws IOException if an image cannot be written
+     */
+    public double export() throws IOException {
+        return export(DEFAULT_THREADS);
+    }
+
+    /**
+     * Exports all slides
+     *
+     * @param threads the number of slides rendered at the same time
+     * @return the number of slides exported per second
+     * @throws IOException if an image cannot be written
+     */
+    public double export(int threads) throws IOException {
+        Files.createDirectories(directory);
+        int slides = presentation.getSize();
+        nameFormat = "slide-%0" + String.valueOf(slides).length() + "d." + FORMAT;
+        renderNanos.reset();
+        encodeNanos.reset();
+        long start = System.nanoTime();
+        ForkJoinPool pool = createPool(Math.max(1, threads));
+        try {
+            pool.invoke(new ExportRange(0, slides));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double throughput = slides / Math.max(seconds, 1e-9);
+        report.printf("exported %d slides in %.2f s on %d threads: %.1f slides/s (render %.0f ms, encode %.0f ms in total)%n",
+                slides, seconds, threads, throughput, renderNanos.sum() / 1e6, encodeNanos.sum() / 1e6);
+        return throughput;
+    }
+
+    /**
+     * Creates the work-stealing pool the slides are exported on
+     * A worker waiting for the images of its slide would normally make the
+     * pool start an extra thread; the pool is kept at its size instead, so
+     * no more slides are in memory than there are threads.
+     *
+     * @param threads the number of threads
+     * @return the pool
+     */
+    private static ForkJoinPool createPool(int threads) {
+        return new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false,
+                threads, threads, 1, pool -> true, 60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Renders one slide and writes it to its file
+     *
+     * @param number the number of the slide
+     * @throws IOException if the image cannot be written
+     */
+    private void exportSlide(int number) throws IOException {
+        long start = System.nanoTime();
+        Slide slide = presentation.getSlide(number);
+        Rectangle area = new Rectangle(0, 0, size.width, size.height);
+        slide.loadImagesNow(area);
+        if (Thread.currentThread().isInterrupted()) {
+            return;
+        }
+        BufferedImage image = SlideRenderer.render(slide, size, area, BGCOLOR, null);
+        long rendered = System.nanoTime();
+        Path file = directory.resolve(String.format(nameFormat, number + 1));
+        writeImage(image, file);
+        long encoded = System.nanoTime();
+        renderNanos.add(rendered - start);
+        encodeNanos.add(encoded - rendered);
+        report.printf("%s: render %.1f ms, encode %.1f ms%n", file.getFileName(),
+                (rendered - start) / 1e6, (encoded - rendered) / 1e6);
+    }
+
+    /**
+     * Encodes an image into a file
+     * The encoder writes its output to the file as it goes, instead of
+     * collecting the whole image in memory first
+     *
+     * @param image the image
+     * @param file  the file, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeImage(BufferedImage image, Path file) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(FORMAT).next();
+        Files.deleteIfExists(file);
+        try (ImageOutputStream output = new FileImageOutputStream(file.toFile())) {
+            writer.setOutput(output);
+            writer.write(image);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Exports a range of slides, split in halves until one slide is left,
+     * so that idle threads can take over the halves of busy ones
+     */
+    private class ExportRange extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L; //Serial version UID
+        private final int from; //The first slide of the range
+        private final int to; //The slide after the range
+
+        /**
+         * Constructor for ExportRange
+         *
+         * @param from the first slide of the range
+         * @param to   the slide after the range
+         */
+        ExportRange(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Exports the range
+         */
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ExportRange(from, middle), new ExportRange(middle, to));
+                return;
+            }
+            if (from < to) {
+                try {
+                    exportSlide(from);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+}
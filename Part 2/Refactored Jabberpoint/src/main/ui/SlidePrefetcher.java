@@ -0,0 +1,138 @@
+package main.ui;
+
+import main.model.Presentation;
+import main.model.Slide;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+/**
+ * SlidePrefetcher renders the slides around the current slide on a
+ * background thread into the slide raster cache, so that moving to them
+ * only needs to copy an image
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+public class SlidePrefetcher {
+    private static final Logger logger = Logger.getLogger(SlidePrefetcher.class.getName()); //Logger
+    private static final int DEFAULT_DEPTH = Integer.getInteger("jabberpoint.prefetchDepth", 1); //Slides to render on each side
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "slide-prefetch");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    }); //The render thread
+    private final SlideRasterCache rasterCache; //The rendered slides
+    private final List<Future<?>> running = new ArrayList<>(); //Renders that have been submitted
+    private final Color background; //The background color of the slides
+    private int depth = DEFAULT_DEPTH; //Slides to render on each side of the current slide
+
+    /**
+     * Constructor for SlidePrefetcher
+     *
+     * @param background  the background color of the slides
+     * @param rasterCache the cache to put the rendered slides in
+     */
+    public SlidePrefetcher(Color background, SlideRasterCache rasterCache) {
+        this.background = background;
+        this.rasterCache = rasterCache;
+    }
+
+    /**
+     * get the number of slides rendered on each side of the current slide
+     *
+     * @return the prefetch depth
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * set the number of slides rendered on each side of the current slide
+     *
+     * @param depth the prefetch depth, 0 switches prefetching off
+     */
+    public void setDepth(int depth) {
+        this.depth = Math.max(0, depth);
+    }
+
+    /**
+     * Renders the neighbours of the current slide in the background
+     * Renders that are still waiting for an older position or size are cancelled
+     *
+     * @param presentation  the presentation
+     * @param current       the number of the current slide
+     * @param size          the size of the component
+     * @param area          the area of the component the slide is drawn in
+     * @param configuration the device the slides will be shown on
+     */
+    public synchronized void prefetch(Presentation presentation, int current, Dimension size,
+                                      Rectangle area, GraphicsConfiguration configuration) {
+        cancelRunning();
+        if (size.width <= 0 || size.height <= 0) {
+            return;
+        }
+        for (int distance = 1; distance <= depth; distance++) {
+            submit(presentation.getSlide(current + distance), current + distance, size, area, configuration);
+            submit(presentation.getSlide(current - distance), current - distance, size, area, configuration);
+        }
+    }
+
+    /**
+     * Submits a render of one slide unless an up to date one exists
+     *
+     * @param slide         the slide, null if the number is out of range
+     * @param index         the number of the slide
+     * @param size          the size of the component
+     * @param area          the area of the component the slide is drawn in
+     * @param configuration the device the slide will be shown on
+     */
+    private void submit(Slide slide, int index, Dimension size, Rectangle area, GraphicsConfiguration configuration) {
+        if (slide == null || rasterCache.get(slide, index, size, configuration) != null) {
+            return;
+        }
+        Dimension targetSize = new Dimension(size);
+        Rectangle targetArea = new Rectangle(area);
+        int version = slide.getVersion();
+        running.add(executor.submit(() -> {
+            try {
+                slide.loadImages(targetArea, configuration).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                logger.info("Error loading images: " + e.getMessage());
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            BufferedImage image = SlideRenderer.render(slide, targetSize, targetArea, background, configuration);
+            rasterCache.put(slide, version, index, targetSize, configuration, image);
+        }));
+    }
+
+    /**
+     * Cancels all renders
+     */
+    public synchronized void clear() {
+        cancelRunning();
+    }
+
+    /**
+     * Cancels the renders that have not finished
+     */
+    private void cancelRunning() {
+        for (Future<?> future : running) {
+            future.cancel(true);
+        }
+        running.clear();
+    }
+}
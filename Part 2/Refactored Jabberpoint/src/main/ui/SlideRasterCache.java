@@ -0,0 +1,174 @@
+package main.ui;
+
+import main.model.Slide;
+import main.util.ImageCache;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * SlideRasterCache keeps fully rendered slides, keyed by slide number,
+ * component size and device scale, so that going back to a slide only needs
+ * to copy an image. A render made for one screen is not shown on a screen
+ * with another scale when the window is moved there.
+ * The least recently shown slides are evicted when the entry count or the
+ * byte budget is exceeded.
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+public class SlideRasterCache {
+    private static final int DEFAULT_MAX_ENTRIES = Integer.getInteger("jabberpoint.slideCacheEntries", 16); //Default entry count
+    private static final long DEFAULT_MAX_BYTES = Long.getLong("jabberpoint.slideCacheBytes", 128L * 1024 * 1024); //Default budget
+    private final LinkedHashMap<Key, RenderedSlide> slides = new LinkedHashMap<>(16, 0.75f, true); //Rendered slides in LRU order
+    private int maxEntries = DEFAULT_MAX_ENTRIES; //The entry count
+    private long maxBytes = DEFAULT_MAX_BYTES; //The byte budget
+    private long currentBytes; //The bytes held by the rendered slides
+
+    /**
+     * get the rendered image of a slide
+     *
+     * @param slide         the slide
+     * @param index         the number of the slide
+     * @param size          the size of the component
+     * @param configuration the device the slide is shown on, null for an image
+     * @return the rendered slide, or null if none matches the slide content, size and device scale
+     */
+    public synchronized BufferedImage get(Slide slide, int index, Dimension size, GraphicsConfiguration configuration) {
+        Key key = Key.of(index, size, configuration);
+        RenderedSlide renderedSlide = slides.get(key);
+        if (renderedSlide == null) {
+            return null;
+        }
+        if (renderedSlide.slide() != slide || renderedSlide.version() != slide.getVersion()) {
+            remove(key);
+            return null;
+        }
+        return renderedSlide.image();
+    }
+
+    /**
+     * add a rendered slide
+     *
+     * @param slide         the slide
+     * @param version       the content version of the slide when it was rendered
+     * @param index         the number of the slide
+     * @param size          the size of the component, the image may have more pixels on a scaled device
+     * @param configuration the device the slide was rendered for, null for an image
+     * @param image         the rendered image
+     */
+    public synchronized void put(Slide slide, int version, int index, Dimension size,
+                                 GraphicsConfiguration configuration, BufferedImage image) {
+        Key key = Key.of(index, size, configuration);
+        remove(key);
+        slides.put(key, new RenderedSlide(slide, version, image));
+        currentBytes += ImageCache.sizeOf(image);
+        evict();
+    }
+
+    /**
+     * Removes an entry
+     *
+     * @param key the key of the entry
+     */
+    private void remove(Key key) {
+        RenderedSlide removed = slides.remove(key);
+        if (removed != null) {
+            currentBytes -= ImageCache.sizeOf(removed.image());
+        }
+    }
+
+    /**
+     * Removes the least recently used slides until the limits are met
+     */
+    private void evict() {
+        Iterator<RenderedSlide> iterator = slides.values().iterator();
+        while ((slides.size() > maxEntries || currentBytes > maxBytes) && iterator.hasNext()) {
+            currentBytes -= ImageCache.sizeOf(iterator.next().image());
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Removes all rendered slides
+     */
+    public synchronized void clear() {
+        slides.clear();
+        currentBytes = 0;
+    }
+
+    /**
+     * Sets the maximum number of rendered slides
+     *
+     * @param maxEntries the entry count
+     */
+    public synchronized void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+        evict();
+    }
+
+    /**
+     * Sets the byte budget
+     *
+     * @param maxBytes the byte budget
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    /**
+     * @return the number of rendered slides
+     */
+    public synchronized int getSize() {
+        return slides.size();
+    }
+
+    /**
+     * @return the bytes held by the rendered slides
+     */
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    /**
+     * The slide number, component size and device scale a slide was rendered for
+     *
+     * @param index  the number of the slide
+     * @param width  the width of the component
+     * @param height the height of the component
+     * @param scaleX the horizontal scale of the device
+     * @param scaleY the vertical scale of the device
+     */
+    private record Key(int index, int width, int height, double scaleX, double scaleY) {
+
+        /**
+         * Makes the key for a slide shown on a device
+         *
+         * @param index         the number of the slide
+         * @param size          the size of the component
+         * @param configuration the device, null for an image
+         * @return the key
+         */
+        static Key of(int index, Dimension size, GraphicsConfiguration configuration) {
+            if (configuration == null) {
+                return new Key(index, size.width, size.height, 1, 1);
+            }
+            AffineTransform transform = configuration.getDefaultTransform();
+            return new Key(index, size.width, size.height, transform.getScaleX(), transform.getScaleY());
+        }
+    }
+
+    /**
+     * A slide rendered for one content version
+     *
+     * @param slide   the slide
+     * @param version the content version of the slide when it was rendered
+     * @param image   the rendered image
+     */
+    private record RenderedSlide(Slide slide, int version, BufferedImage image) {
+    }
+}
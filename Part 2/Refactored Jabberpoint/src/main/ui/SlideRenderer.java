@@ -0,0 +1,90 @@
+package main.ui;
+
+import main.model.Slide;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+/**
+ * SlideRenderer draws slides into offscreen images
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+public class SlideRenderer {
+
+    /**
+     * Constructor for SlideRenderer
+     */
+    private SlideRenderer() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Renders a slide into a new image
+     * For a device that is scaled, such as a HiDPI screen, the image has one
+     * pixel per device pixel, so it is as sharp as drawing the slide directly
+     * when it is drawn back into the logical size
+     *
+     * @param slide         the slide to render
+     * @param size          the logical size of the image
+     * @param area          the area of the image to draw the slide in
+     * @param background    the background color
+     * @param configuration the device the image will be shown on, null for a plain RGB image
+     * @return the rendered slide
+     */
+    public static BufferedImage render(Slide slide, Dimension size, Rectangle area,
+                                       Color background, GraphicsConfiguration configuration) {
+        if (configuration == null) {
+            BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+            return draw(slide, image, image.createGraphics(), area, background);
+        }
+        AffineTransform transform = configuration.getDefaultTransform();
+        BufferedImage image = configuration.createCompatibleImage((int) Math.ceil(size.width * transform.getScaleX()),
+                (int) Math.ceil(size.height * transform.getScaleY()));
+        Graphics2D g = image.createGraphics();
+        g.scale(transform.getScaleX(), transform.getScaleY());
+        return draw(slide, image, g, area, background);
+    }
+
+    /**
+     * Renders a slide into a new image at reduced quality, for thumbnails
+     * Antialiasing is switched off and speed is preferred over quality
+     *
+     * @param slide      the slide to render
+     * @param size       the size of the image, the slide fills all of it
+     * @param background the background color
+     * @return the rendered slide
+     */
+    public static BufferedImage renderDraft(Slide slide, Dimension size, Color background) {
+        BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        return draw(slide, image, g, new Rectangle(0, 0, size.width, size.height), background);
+    }
+
+    /**
+     * Fills an image with the background and draws a slide on it
+     *
+     * @param slide      the slide to draw
+     * @param image      the image
+     * @param g          the graphics of the image, disposed when done
+     * @param area       the area of the image to draw the slide in
+     * @param background the background color
+     * @return the image
+     */
+    private static BufferedImage draw(Slide slide, BufferedImage image, Graphics2D g, Rectangle area, Color background) {
+        try {
+            g.setColor(background);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            slide.draw(g, area, null);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+}
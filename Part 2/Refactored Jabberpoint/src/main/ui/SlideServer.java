@@ -0,0 +1,327 @@
+package main.ui;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import main.model.Presentation;
+import main.model.Slide;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * SlideServer serves the slides of a presentation as PNG images over HTTP
+ * GET /slides/{n}.png returns slide n, counting from 1. Rendered images are
+ * kept in a bounded cache and carry a strong ETag made from the content digest
+ * of the slide, so a browser that asks again with If-None-Match gets a 304
+ * until the slide changes. The digest is asked of the presentation, which
+ * remembers it for slides that are not in memory, so answering with a 304 or
+ * a cached image creates no slide. Slides are read without being kept, so
+ * the slides the viewer keeps stay as they are. Concurrent requests for a
+ * slide that is not cached share one render, and no more slides are rendered
+ * at the same time than there are processors.
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+public class SlideServer {
+    private static final Logger logger = Logger.getLogger(SlideServer.class.getName()); //Logger
+    private static final Color BGCOLOR = Color.white; //Background color
+    private static final Pattern SLIDE_PATH = Pattern.compile("/slides/(\\d{1,9})\\.png"); //The path of a slide image
+    private static final int BACKLOG = Integer.getInteger("jabberpoint.serverBacklog", 1024); //Connections waiting to be accepted
+    private static final int THREADS = Integer.getInteger("jabberpoint.serverThreads",
+            Math.max(16, 4 * Runtime.getRuntime().availableProcessors())); //Request threads when there are no virtual threads
+    private static final long DEFAULT_MAX_BYTES = Long.getLong("jabberpoint.serverCacheBytes", 64L * 1024 * 1024); //Default budget
+    private final Presentation presentation; //The presentation served
+    private final Dimension size; //The size of the images
+    private final Semaphore renders = new Semaphore(Runtime.getRuntime().availableProcessors()); //Limits the renders at the same time
+    private final LinkedHashMap<Integer, RenderedPng> pngs = new LinkedHashMap<>(16, 0.75f, true); //Rendered slides in LRU order
+    private long maxBytes = DEFAULT_MAX_BYTES; //The byte budget of the rendered slides
+    private long currentBytes; //The bytes held by the finished renders
+    private HttpServer server; //The server, null when stopped
+    private ExecutorService executor; //Handles the requests
+
+    /**
+     * Constructor for SlideServer
+     *
+     * @param presentation the presentation to serve
+     * @param size         the size of the images
+     */
+    public SlideServer(Presentation presentation, Dimension size) {
+        this.presentation = presentation;
+        this.size = new Dimension(size);
+    }
+
+    /**
+     * Starts serving
+     *
+     * @param port the port to listen on, 0 for any free port
+     * @return the port that is listened on
+     * @throws IOException if the port cannot be opened
+     */
+    public synchronized int start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        executor = createExecutor();
+        server.setExecutor(executor);
+        server.createContext("/slides/", this::handle);
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops serving
+     * Requests that are being handled are given a second to finish
+     */
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(1);
+            executor.shutdown();
+            server = null;
+        }
+    }
+
+    /**
+     * Sets the byte budget of the rendered slides
+     *
+     * @param maxBytes the byte budget
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    /**
+     * Creates the executor that handles the requests
+     * Each request gets a virtual thread when the runtime has them (Java 21 and
+     * later); otherwise requests share a fixed pool of platform threads.
+     *
+     * @return the executor
+     */
+    private static ExecutorService createExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(THREADS, runnable -> {
+                Thread thread = new Thread(runnable, "slide-server");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Handles a request
+     * The request body is drained first: the HTTP server closes the connection
+     * after a response without a body, such as a 304, unless the request was read to its end.
+     *
+     * @param exchange the request and its response
+     * @throws IOException if the response cannot be sent
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            exchange.getRequestBody().close();
+            String method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            Matcher matcher = SLIDE_PATH.matcher(exchange.getRequestURI().getPath());
+            int index = matcher.matches() ? Integer.parseInt(matcher.group(1)) - 1 : -1;
+            String contentDigest = presentation.getContentDigest(index);
+            if (contentDigest == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            String etag = String.format("\"%s-%dx%d\"", contentDigest, size.width, size.height);
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            if (matches(exchange.getRequestHeaders().getFirst("If-None-Match"), etag)) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            byte[] png;
+            try {
+                png = getPng(index, contentDigest);
+            } catch (ExecutionException e) {
+                logger.info("Error rendering slide: " + e.getMessage());
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "image/png");
+            if ("HEAD".equals(method)) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, png.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(png);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Checks whether an If-None-Match header names an ETag
+     * Weak tags are compared by their value, as GET allows
+     *
+     * @param header the If-None-Match header, may be null
+     * @param etag   the current ETag
+     * @return true if the client already has the current image
+     */
+    private static boolean matches(String header, String etag) {
+        if (header == null) {
+            return false;
+        }
+        for (String tag : header.split(",")) {
+            String trimmed = tag.trim();
+            if (trimmed.startsWith("W/")) {
+                trimmed = trimmed.substring(2);
+            }
+            if (trimmed.equals(etag) || trimmed.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * get the PNG image of a slide, rendering it unless an up to date one is cached
+     * Requests that arrive while the slide is being rendered wait for that render
+     *
+     * @param index         the number of the slide
+     * @param contentDigest the content digest of the slide
+     * @return the PNG image
+     * @throws InterruptedException if the request is interrupted
+     * @throws ExecutionException   if the slide cannot be rendered
+     */
+    private byte[] getPng(int index, String contentDigest) throws InterruptedException, ExecutionException {
+        CompletableFuture<byte[]> png;
+        boolean render = false;
+        synchronized (this) {
+            RenderedPng cached = pngs.get(index);
+            if (cached != null && cached.contentDigest().equals(contentDigest) && !cached.png().isCompletedExceptionally()) {
+                png = cached.png();
+            } else {
+                remove(index);
+                png = new CompletableFuture<>();
+                pngs.put(index, new RenderedPng(contentDigest, png));
+                render = true;
+            }
+        }
+        if (render) {
+            try {
+                finish(index, png, render(index), null);
+            } catch (InterruptedException e) {
+                finish(index, png, null, e);
+                throw e;
+            } catch (IOException | RuntimeException e) {
+                finish(index, png, null, e);
+            }
+        }
+        return png.get();
+    }
+
+    /**
+     * Completes a render and counts its bytes in the same critical section,
+     * so remove and evict never see a finished render whose bytes are not counted
+     *
+     * @param index   the number of the slide
+     * @param png     the render to complete
+     * @param bytes   the PNG image, null if the render failed
+     * @param failure the reason the render failed, null if it succeeded
+     */
+    private synchronized void finish(int index, CompletableFuture<byte[]> png, byte[] bytes, Throwable failure) {
+        if (failure != null) {
+            png.completeExceptionally(failure);
+            return;
+        }
+        png.complete(bytes);
+        RenderedPng current = pngs.get(index);
+        if (current != null && current.png() == png) {
+            currentBytes += bytes.length;
+            evict();
+        }
+    }
+
+    /**
+     * Renders a slide and encodes it as PNG
+     *
+     * @param index the number of the slide
+     * @return the PNG image
+     * @throws InterruptedException if the request is interrupted
+     * @throws IOException          if the slide has been removed or the image cannot be encoded
+     */
+    private byte[] render(int index) throws InterruptedException, IOException {
+        Slide slide = presentation.readSlide(index);
+        if (slide == null) {
+            throw new IOException("Slide " + (index + 1) + " has been removed");
+        }
+        Rectangle area = new Rectangle(0, 0, size.width, size.height);
+        renders.acquire();
+        try {
+            try {
+                slide.loadImages(area).get();
+            } catch (ExecutionException e) {
+                logger.info("Error loading images: " + e.getMessage());
+            }
+            BufferedImage image = SlideRenderer.render(slide, size, area, BGCOLOR, null);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", output);
+            return output.toByteArray();
+        } finally {
+            renders.release();
+        }
+    }
+
+    /**
+     * Removes an entry
+     *
+     * @param index the number of the slide
+     */
+    private void remove(int index) {
+        RenderedPng removed = pngs.remove(index);
+        if (removed != null && removed.png().isDone() && !removed.png().isCompletedExceptionally()) {
+            currentBytes -= removed.png().join().length;
+        }
+    }
+
+    /**
+     * Removes the least recently used finished renders until the budget is met
+     */
+    private void evict() {
+        Iterator<Map.Entry<Integer, RenderedPng>> iterator = pngs.entrySet().iterator();
+        while (currentBytes > maxBytes && iterator.hasNext()) {
+            CompletableFuture<byte[]> png = iterator.next().getValue().png();
+            if (png.isDone() && !png.isCompletedExceptionally()) {
+                currentBytes -= png.join().length;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * A slide rendered, or being rendered, for one content digest
+     *
+     * @param contentDigest the content digest of the slide when it was rendered
+     * @param png           the PNG image, completed when the render is done
+     */
+    private record RenderedPng(String contentDigest, CompletableFuture<byte[]> png) {
+    }
+}
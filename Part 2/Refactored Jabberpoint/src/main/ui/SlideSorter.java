@@ -0,0 +1,373 @@
+package main.ui;
+
+import main.model.Presentation;
+import main.model.Slide;
+
+import javax.swing.*;
+import javax.swing.event.ChangeListener;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.image.BufferedImage;
+import java.io.Serial;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+/**
+ * SlideSorter shows the slides of a presentation as a grid of thumbnails
+ * Clicking a thumbnail shows that slide. Only the thumbnails that are
+ * visible are painted: they are drawn from a bounded cache, and painting
+ * creates no slides. The slides are created on background threads, which
+ * render missing thumbnails at reduced quality and check the cached ones
+ * against the content digest of their slide whenever the viewer reports a
+ * change, so scrolling through large decks only copies small images, memory
+ * stays flat and the slides the viewer keeps are left alone.
+ * Renders of thumbnails that have been scrolled away are cancelled.
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+public class SlideSorter extends JComponent implements Scrollable {
+    @Serial
+    private static final long serialVersionUID = 228L; //Serial version UID
+    private static final Logger logger = Logger.getLogger(SlideSorter.class.getName()); //Logger
+    private static final Color BGCOLOR = new Color(0xE0E0E0); //Background color
+    private static final Color SLIDE_COLOR = Color.white; //Background color of the slides
+    private static final Color BORDER_COLOR = Color.gray; //Border of the thumbnails
+    private static final Color CURRENT_COLOR = Color.blue; //Border of the thumbnail of the current slide
+    private static final int THUMB_WIDTH = 160; //Width of a thumbnail
+    private static final int THUMB_HEIGHT = 120; //Height of a thumbnail
+    private static final int GAP = 16; //Space between the thumbnails
+    private static final int LABEL_HEIGHT = 14; //Height of the slide number below a thumbnail
+    private static final int CELL_WIDTH = THUMB_WIDTH + GAP; //Width of a thumbnail with its space
+    private static final int CELL_HEIGHT = THUMB_HEIGHT + LABEL_HEIGHT + GAP; //Height of a thumbnail with its number and space
+    private static final int THREADS = Integer.getInteger("jabberpoint.thumbnailThreads",
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1)); //Threads rendering thumbnails
+    private final transient SlideViewerComponent viewer; //Shows the slide that is clicked
+    private final transient ThumbnailCache cache = new ThumbnailCache(); //The rendered thumbnails
+    private final transient Map<Integer, CompletableFuture<Void>> pending = new HashMap<>(); //Running renders by slide number, only used on the event thread
+    private final transient BitSet checked = new BitSet(); //The thumbnails checked against their slide since the last change, only used on the event thread
+    private final transient ChangeListener viewerListener = event -> viewerChanged(); //Follows the viewer
+    private final transient ExecutorService executor = Executors.newFixedThreadPool(THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "thumbnail-render");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    }); //The render threads
+    private int shownSlide = -1; //The current slide the grid was last scrolled to
+    private int changes; //The number of changes reported by the viewer, only used on the event thread
+
+    /**
+     * Constructor for SlideSorter
+     *
+     * @param viewer the viewer that shows the slide that is clicked
+     */
+    public SlideSorter(SlideViewerComponent viewer) {
+        this.viewer = viewer;
+        setOpaque(true);
+        setBackground(BGCOLOR);
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = indexAt(e.getPoint());
+                if (index >= 0) {
+                    viewer.setSlideNumber(index);
+                }
+            }
+        });
+        viewer.addChangeListener(viewerListener);
+    }
+
+    /**
+     * Shows the thumbnails of the presentation of a viewer in a window of their own
+     *
+     * @param parent the frame of the viewer
+     * @param viewer the viewer
+     */
+    public static void showDialog(JFrame parent, SlideViewerComponent viewer) {
+        SlideSorter sorter = new SlideSorter(viewer);
+        JDialog dialog = new JDialog(parent, "Thumbnails", false);
+        dialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                sorter.dispose();
+            }
+        });
+        JScrollPane scrollPane = new JScrollPane(sorter, ScrollPaneConstants.VERTICAL_SCROLLBAR_ALWAYS,
+                ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+        dialog.getContentPane().add(scrollPane);
+        dialog.pack();
+        dialog.setLocationRelativeTo(parent);
+        dialog.setVisible(true);
+    }
+
+    /**
+     * @return the cache of rendered thumbnails
+     */
+    public ThumbnailCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Stops following the viewer and stops rendering
+     */
+    public void dispose() {
+        viewer.removeChangeListener(viewerListener);
+        executor.shutdownNow();
+        pending.clear();
+        checked.clear();
+        cache.clear();
+    }
+
+    /**
+     * Called when the current slide or the number of slides has changed
+     * The thumbnails shown are checked against their slides again.
+     * This may be called from a loader thread
+     */
+    private void viewerChanged() {
+        revalidate();
+        repaint();
+        SwingUtilities.invokeLater(() -> {
+            changes++;
+            checked.clear();
+            int current = getPresentation().getCurrentSlideNumber();
+            if (current != shownSlide && current >= 0) {
+                shownSlide = current;
+                scrollRectToVisible(getCellBounds(current));
+            }
+        });
+    }
+
+    /**
+     * @return the presentation
+     */
+    private Presentation getPresentation() {
+        return viewer.getPresentation();
+    }
+
+    /**
+     * get the number of thumbnails on a row
+     * When the grid is scrolled, this is decided by the width of the viewport
+     *
+     * @return the number of columns
+     */
+    private int getColumns() {
+        Container parent = getParent();
+        int width = parent instanceof JViewport ? parent.getWidth() : getWidth();
+        return Math.max(1, width / CELL_WIDTH);
+    }
+
+    /**
+     * get the bounds of the thumbnail of a slide, with its number
+     *
+     * @param index the number of the slide
+     * @return the bounds
+     */
+    private Rectangle getCellBounds(int index) {
+        int columns = getColumns();
+        return new Rectangle((index % columns) * CELL_WIDTH, (index / columns) * CELL_HEIGHT, CELL_WIDTH, CELL_HEIGHT);
+    }
+
+    /**
+     * get the slide whose thumbnail is at a point
+     *
+     * @param point the point
+     * @return the number of the slide, -1 if there is none
+     */
+    private int indexAt(Point point) {
+        int columns = getColumns();
+        int column = point.x / CELL_WIDTH;
+        if (point.x < 0 || point.y < 0 || column >= columns) {
+            return -1;
+        }
+        int index = (point.y / CELL_HEIGHT) * columns + column;
+        return index < getPresentation().getSize() ? index : -1;
+    }
+
+    /**
+     * @return the preferred size, large enough for all thumbnails
+     */
+    @Override
+    public Dimension getPreferredSize() {
+        int columns = getColumns();
+        int rows = (getPresentation().getSize() + columns - 1) / columns;
+        return new Dimension(columns * CELL_WIDTH, rows * CELL_HEIGHT);
+    }
+
+    /**
+     * @return the size of the viewport when the grid is first shown
+     */
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return new Dimension(5 * CELL_WIDTH, 4 * CELL_HEIGHT);
+    }
+
+    /**
+     * @return the distance scrolled by a scroll bar arrow or a mouse wheel click
+     */
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return CELL_HEIGHT / 4;
+    }
+
+    /**
+     * @return the distance scrolled by a page, one row less than is visible
+     */
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return Math.max(CELL_HEIGHT, visibleRect.height - CELL_HEIGHT);
+    }
+
+    /**
+     * @return true, the columns follow the width of the viewport
+     */
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;
+    }
+
+    /**
+     * @return true if all thumbnails fit, so the background fills the viewport
+     */
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        Container parent = getParent();
+        return parent instanceof JViewport && parent.getHeight() > getPreferredSize().height;
+    }
+
+    /**
+     * paint the thumbnails in the clip area
+     *
+     * @param g the graphics object
+     */
+    @Override
+    public void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds() != null ? g.getClipBounds() : getVisibleRect();
+        g.setColor(BGCOLOR);
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        Presentation presentation = getPresentation();
+        int columns = getColumns();
+        int first = Math.max(0, clip.y / CELL_HEIGHT) * columns;
+        int last = Math.min(presentation.getSize(), ((clip.y + clip.height) / CELL_HEIGHT + 1) * columns);
+        int current = presentation.getCurrentSlideNumber();
+        g.setFont(getFont() != null ? getFont() : new Font(Font.DIALOG, Font.PLAIN, 11));
+        for (int index = first; index < last; index++) {
+            paintThumbnail(g, index, index == current);
+        }
+        cancelInvisible(columns);
+    }
+
+    /**
+     * paint one thumbnail with its number from the cache, and start checking it
+     * against its slide if that has not been done since the last change
+     *
+     * @param g       the graphics object
+     * @param index   the number of the slide
+     * @param current true if it is the current slide
+     */
+    private void paintThumbnail(Graphics g, int index, boolean current) {
+        Rectangle cell = getCellBounds(index);
+        int x = cell.x + GAP / 2;
+        int y = cell.y + GAP / 2;
+        BufferedImage thumbnail = cache.get(index);
+        if (thumbnail != null) {
+            g.drawImage(thumbnail, x, y, null);
+        } else {
+            g.setColor(SLIDE_COLOR);
+            g.fillRect(x, y, THUMB_WIDTH, THUMB_HEIGHT);
+        }
+        if (!checked.get(index)) {
+            render(index);
+        }
+        g.setColor(current ? CURRENT_COLOR : BORDER_COLOR);
+        g.drawRect(x - 1, y - 1, THUMB_WIDTH + 1, THUMB_HEIGHT + 1);
+        if (current) {
+            g.drawRect(x - 2, y - 2, THUMB_WIDTH + 3, THUMB_HEIGHT + 3);
+        }
+        String number = Integer.toString(index + 1);
+        FontMetrics metrics = g.getFontMetrics();
+        g.setColor(Color.black);
+        g.drawString(number, x + (THUMB_WIDTH - metrics.stringWidth(number)) / 2,
+                y + THUMB_HEIGHT + metrics.getAscent() + 1);
+    }
+
+    /**
+     * Starts checking the thumbnail of a slide and rendering it if it is missing or
+     * out of date, unless that is already running
+     *
+     * @param index the number of the slide
+     */
+    private void render(int index) {
+        if (pending.containsKey(index) || executor.isShutdown()) {
+            return;
+        }
+        Presentation presentation = getPresentation();
+        int change = changes;
+        CompletableFuture<Void> task = CompletableFuture.runAsync(() -> renderThumbnail(presentation, index), executor);
+        pending.put(index, task);
+        task.whenComplete((unused, failure) -> SwingUtilities.invokeLater(() -> {
+            if (pending.remove(index, task) && change == changes) {
+                checked.set(index);
+            }
+            repaint(getCellBounds(index));
+        }));
+    }
+
+    /**
+     * Renders the thumbnail of a slide into the cache, unless the cached one is current
+     * This runs on a render thread, so the slide is created here rather than when painting.
+     *
+     * @param presentation the presentation
+     * @param index        the number of the slide
+     */
+    private void renderThumbnail(Presentation presentation, int index) {
+        Slide slide = presentation.readSlide(index);
+        if (slide == null) {
+            return;
+        }
+        String contentDigest = slide.getContentDigest();
+        if (cache.isCurrent(index, contentDigest)) {
+            return;
+        }
+        Dimension size = new Dimension(THUMB_WIDTH, THUMB_HEIGHT);
+        try {
+            slide.loadImages(new Rectangle(size)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            logger.info("Error loading images: " + e.getMessage());
+        }
+        cache.put(index, contentDigest, SlideRenderer.renderDraft(slide, size, SLIDE_COLOR));
+    }
+
+    /**
+     * Cancels the renders of thumbnails that are no longer visible
+     * A row above and below the visible rows is kept
+     *
+     * @param columns the number of thumbnails on a row
+     */
+    private void cancelInvisible(int columns) {
+        Rectangle visible = getVisibleRect();
+        int first = (visible.y / CELL_HEIGHT - 1) * columns;
+        int last = ((visible.y + visible.height) / CELL_HEIGHT + 2) * columns;
+        Iterator<Map.Entry<Integer, CompletableFuture<Void>>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, CompletableFuture<Void>> entry = iterator.next();
+            if (entry.getKey() < first || entry.getKey() >= last) {
+                entry.getValue().cancel(false);
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -1,12 +1,20 @@
 package main.ui;
 
+import main.accessor.Progress;
+import main.model.DisplayList;
 import main.model.Presentation;
 import main.model.Slide;
 import main.util.TextEnums;
 
 import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.image.BufferedImage;
 import java.io.Serial;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 /**
@@ -27,10 +35,25 @@ public class SlideViewerComponent extends JComponent {
     private static final int FONT_HEIGHT = 10; //Font height
     private static final int X_POS = 1100; //Position of page number
     private static final int Y_POS = 20; //Position of page number
+    private static final int PROGRESS_WIDTH = 100; //Width of the progress bar
+    private static final int PROGRESS_HEIGHT = 8; //Height of the progress bar
+    private static final int FRAME_MILLIS = 16; //The least time between two shown slides while navigating
+    private static final int SETTLE_MILLIS = 150; //The quiet time after which navigation has stopped
+    private static final int RESIZE_MILLIS = 200; //The quiet time after which a resize has stopped
     private transient Slide slide; //The current slide
     private Font labelFont = null; //The font for labels
     private transient Presentation presentation = null; //The presentation
     private JFrame frame = null; //The frame
+    private transient volatile Progress progress = null; //The progress of a running load or save
+    private final transient SlideRasterCache rasterCache = new SlideRasterCache(); //The rendered slides
+    private final transient SlidePrefetcher prefetcher = new SlidePrefetcher(BGCOLOR, rasterCache); //Renders the neighbouring slides
+    private final transient Timer frameTimer = new Timer(FRAME_MILLIS, e -> showTarget()); //Paces the slides shown while navigating
+    private final transient Timer settleTimer = new Timer(SETTLE_MILLIS, e -> settle()); //Notices that navigation has stopped
+    private final transient Timer resizeTimer = new Timer(RESIZE_MILLIS, e -> resized()); //Notices that a resize has stopped
+    private int targetSlide = -1; //The slide navigation is heading for, -1 when none is waiting
+    private boolean navigating = false; //True while navigation requests keep arriving
+    private boolean resizing = false; //True while the size keeps changing
+    private final transient AtomicBoolean appendPending = new AtomicBoolean(); //True while the listeners have yet to be told about appended slides
 
     /**
      * Constructor for SlideViewerComponent
@@ -43,6 +66,30 @@ public class SlideViewerComponent extends JComponent {
         presentation = pres;
         labelFont = new Font(FONT_NAME, FONT_STYLE, FONT_HEIGHT);
         this.frame = frame;
+        frameTimer.setRepeats(false);
+        settleTimer.setRepeats(false);
+        resizeTimer.setRepeats(false);
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                resizing = true;
+                resizeTimer.restart();
+            }
+        });
+    }
+
+    /**
+     * @return the cache of rendered slides
+     */
+    public SlideRasterCache getRasterCache() {
+        return rasterCache;
+    }
+
+    /**
+     * @return the prefetcher that renders the neighbouring slides
+     */
+    public SlidePrefetcher getPrefetcher() {
+        return prefetcher;
     }
 
     /**
@@ -68,31 +115,154 @@ public class SlideViewerComponent extends JComponent {
      */
     public void update(Presentation presentation, Slide data) {
         if (data == null) {
+            if (presentation.getSize() == 0) {
+                clearRenders();
+            }
             repaint();
+            fireStateChanged();
             return;
         }
 
         this.presentation = presentation;
         this.slide = data;
         repaint();
-        frame.setTitle(presentation.getTitle());
+        if (frame != null) {
+            frame.setTitle(presentation.getTitle());
+        }
+        if (!navigating) {
+            prefetchNeighbours();
+        }
+        fireStateChanged();
+    }
+
+    /**
+     * Adds a listener that is told when the current slide or the number of slides changes
+     * The listener may be called from a loader thread
+     *
+     * @param listener the listener
+     */
+    public void addChangeListener(ChangeListener listener) {
+        listenerList.add(ChangeListener.class, listener);
+    }
+
+    /**
+     * Removes a listener
+     *
+     * @param listener the listener
+     */
+    public void removeChangeListener(ChangeListener listener) {
+        listenerList.remove(ChangeListener.class, listener);
+    }
+
+    /**
+     * Tells the listeners that the current slide or the number of slides has changed
+     */
+    private void fireStateChanged() {
+        ChangeEvent event = new ChangeEvent(this);
+        for (ChangeListener listener : listenerList.getListeners(ChangeListener.class)) {
+            listener.stateChanged(event);
+        }
+    }
+
+    /**
+     * Called when a slide has been appended to the presentation
+     * This may be called from a loader thread; the listeners are told on the
+     * event thread, once for all slides appended meanwhile. The first slide is
+     * shown as soon as it arrives; later slides only update the slide count.
+     *
+     * @param presentation the presentation
+     * @param index the number of the appended slide
+     */
+    public void slideAppended(Presentation presentation, int index) {
+        if (index == 0) {
+            SwingUtilities.invokeLater(() -> {
+                if (presentation.getCurrentSlideNumber() <= 0 && presentation.getSize() > 0) {
+                    setSlideNumber(0);
+                }
+            });
+        } else if (Math.abs(index - presentation.getCurrentSlideNumber()) <= prefetcher.getDepth()) {
+            SwingUtilities.invokeLater(this::prefetchNeighbours);
+        }
+        repaint();
+        if (appendPending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(() -> {
+                appendPending.set(false);
+                fireStateChanged();
+            });
+        }
+    }
+
+    /**
+     * Called when slides of the presentation have been replaced
+     * The current slide number is kept, unless the presentation has become shorter.
+     * Renders of the slides that were kept stay valid; those of replaced
+     * slides no longer match their slide and are rendered again.
+     *
+     * @param presentation the presentation
+     */
+    public void slidesReplaced(Presentation presentation) {
+        SwingUtilities.invokeLater(() ->
+                setSlideNumber(Math.min(presentation.getCurrentSlideNumber(), presentation.getSize() - 1)));
+    }
+
+    /**
+     * Called when all slides of the presentation have been indexed for search
+     * This is called from the indexing thread; the listeners are told on the event thread.
+     *
+     * @param presentation the presentation
+     */
+    public void slidesIndexed(Presentation presentation) {
+        SwingUtilities.invokeLater(this::fireStateChanged);
+    }
+
+    /**
+     * Shows the progress of a background load or save
+     * It is drawn next to the page number until it is finished
+     *
+     * @param progress the progress
+     */
+    public void showProgress(Progress progress) {
+        this.progress = progress;
+        repaint();
+    }
+
+    /**
+     * Start rendering the slides around the current slide in the background
+     */
+    private void prefetchNeighbours() {
+        if (presentation == null || resizing || presentation.getCurrentSlideNumber() < 0) {
+            return;
+        }
+        prefetcher.prefetch(presentation, presentation.getCurrentSlideNumber(), getSize(),
+                getSlideArea(), getGraphicsConfiguration());
     }
 
     /**
      * Clear the presentation
      */
     void clear() {
+        clearRenders();
         presentation.clear();
         repaint();
     }
 
+    /**
+     * Drop all rendered slides and stop the renders in progress
+     */
+    private void clearRenders() {
+        prefetcher.clear();
+        rasterCache.clear();
+    }
+
     /**
      * Set the slide number
+     * The slide is updated once; a navigation that is still waiting is dropped
      *
      * @param number the number of the slide to be shown
      */
     public void setSlideNumber(int number) {
-        this.presentation.setSlideNumber(number);
+        targetSlide = -1;
+        this.presentation.setCurrentSlideNumber(number);
         this.update(presentation, this.presentation.getCurrentSlide());
     }
 
@@ -100,8 +270,9 @@ public class SlideViewerComponent extends JComponent {
      * Go to the previous slide
      */
     public void prevSlide() {
-        if (presentation.getCurrentSlideNumber() > 0 && presentation.getCurrentSlideNumber() <= presentation.getSize() - 1) {
-            setSlideNumber(presentation.getCurrentSlideNumber() - 1);
+        int current = targetSlide >= 0 ? targetSlide : presentation.getCurrentSlideNumber();
+        if (current > 0 && current <= presentation.getSize() - 1) {
+            navigate(current - 1);
         }
     }
 
@@ -109,9 +280,64 @@ public class SlideViewerComponent extends JComponent {
      * go to the next slide
      */
     public void nextSlide() {
-        if (presentation.getCurrentSlideNumber() < (presentation.getSize() - 1)) {
-            setSlideNumber(presentation.getCurrentSlideNumber() + 1);
+        int current = targetSlide >= 0 ? targetSlide : presentation.getCurrentSlideNumber();
+        if (current < (presentation.getSize() - 1)) {
+            navigate(current + 1);
+        }
+    }
+
+    /**
+     * Navigate to a slide, showing at most one slide per frame
+     * The first request is shown at once. Requests that arrive within the
+     * frame after it, such as key auto-repeat, only move the target; the
+     * latest target is shown when the frame is over. A single request is
+     * shown in full; while requests keep arriving the slides passed are drawn
+     * as drafts, without decoding their images or prefetching their neighbours.
+     *
+     * @param number the number of the slide to go to
+     */
+    private void navigate(int number) {
+        targetSlide = number;
+        navigating = settleTimer.isRunning();
+        settleTimer.restart();
+        if (!frameTimer.isRunning()) {
+            showTarget();
+        }
+    }
+
+    /**
+     * Show the latest navigation target, if any, and start a new frame
+     */
+    private void showTarget() {
+        if (targetSlide < 0) {
+            return;
+        }
+        setSlideNumber(targetSlide);
+        frameTimer.restart();
+    }
+
+    /**
+     * Called when the size has not changed for a while
+     * The slide is rendered for the new size and its neighbours are prefetched.
+     */
+    private void resized() {
+        resizing = false;
+        repaint();
+        prefetchNeighbours();
+    }
+
+    /**
+     * Called when no navigation request has arrived for a while
+     * The slide shown is drawn in full and its neighbours are prefetched.
+     */
+    private void settle() {
+        if (frameTimer.isRunning() || targetSlide >= 0) {
+            settleTimer.restart();
+            return;
         }
+        navigating = false;
+        repaint();
+        prefetchNeighbours();
     }
 
     /**
@@ -121,16 +347,91 @@ public class SlideViewerComponent extends JComponent {
      */
     @Override
     public void paintComponent(Graphics g) {
-        g.setColor(BGCOLOR);
-        g.fillRect(0, 0, getSize().width, getSize().height);
-        if (presentation.getCurrentSlideNumber() < 0 || slide == null) {
+        int slideNumber = presentation.getCurrentSlideNumber();
+        if (slideNumber < 0 || slide == null) {
+            g.setColor(BGCOLOR);
+            g.fillRect(0, 0, getSize().width, getSize().height);
+            drawProgress(g);
+            return;
+        }
+        BufferedImage rendered = getRenderedSlide(slideNumber);
+        if (rendered != null) {
+            g.drawImage(rendered, 0, 0, getWidth(), getHeight(), null);
+        } else {
+            g.setColor(BGCOLOR);
+            g.fillRect(0, 0, getSize().width, getSize().height);
+            DisplayList displayList = slide.getDisplayList(g, getSlideArea(), this);
+            if (navigating) {
+                displayList.replayDraft(g);
+            } else {
+                displayList.replay(g, this);
+            }
+        }
+        g.setFont(labelFont);
+        g.setColor(COLOR);
+        g.drawString(String.format(presentation.isLoading() ? "Slide %s of %s+" : "Slide %s of %s",
+                1 + slideNumber, presentation.getSize()), X_POS, Y_POS);
+        drawProgress(g);
+    }
+
+    /**
+     * Draws the progress of a running load or save left of the page number
+     * The bar is only drawn when the fraction done is known
+     *
+     * @param g the graphics to draw on
+     */
+    private void drawProgress(Graphics g) {
+        Progress shown = progress;
+        if (shown == null || shown.isFinished()) {
             return;
         }
         g.setFont(labelFont);
         g.setColor(COLOR);
-        g.drawString(String.format("Slide %s of %s", 1 + presentation.getCurrentSlideNumber(), presentation.getSize()), X_POS, Y_POS);
-        Rectangle area = new Rectangle(0, Y_POS, getWidth(), (getHeight() - Y_POS));
-        slide.draw(g, area, this);
+        g.drawString(String.format("%d slides, %d images", shown.getSlides(), shown.getImages()),
+                X_POS - 2 * PROGRESS_WIDTH - 130, Y_POS);
+        double fraction = shown.getFraction();
+        if (fraction >= 0) {
+            int top = Y_POS - PROGRESS_HEIGHT;
+            g.drawRect(X_POS - PROGRESS_WIDTH - 20, top, PROGRESS_WIDTH, PROGRESS_HEIGHT);
+            g.fillRect(X_POS - PROGRESS_WIDTH - 20, top, (int) (PROGRESS_WIDTH * Math.min(1, fraction)), PROGRESS_HEIGHT);
+        }
+    }
+
+    /**
+     * get the rendered image of the current slide
+     * The slide is rendered and cached once all its images are decoded
+     * at the needed resolution; until then it is drawn directly. While
+     * navigating only a cached render is used, so the slides passed are
+     * drawn directly with the images that happen to be decoded. While the
+     * size keeps changing nothing is rendered or cached, so a live resize
+     * does not render every intermediate size or push the neighbours out.
+     *
+     * @param slideNumber the number of the current slide
+     * @return the rendered slide, or null if it cannot be rendered yet
+     */
+    private BufferedImage getRenderedSlide(int slideNumber) {
+        Dimension size = getSize();
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        BufferedImage rendered = rasterCache.get(slide, slideNumber, size, configuration);
+        if (rendered != null || navigating || resizing || size.width <= 0 || size.height <= 0) {
+            return rendered;
+        }
+        Rectangle area = getSlideArea();
+        if (!slide.loadImages(area, configuration).isDone()) {
+            return null;
+        }
+        int version = slide.getVersion();
+        rendered = SlideRenderer.render(slide, size, area, BGCOLOR, configuration);
+        rasterCache.put(slide, version, slideNumber, size, configuration, rendered);
+        return rendered;
+    }
+    /**
+     * get the area of the component the slide is drawn in
+     *
+     * @return the slide area
+     */
+    private Rectangle getSlideArea() {
+        return new Rectangle(0, Y_POS, getWidth(), (getHeight() - Y_POS));
     }
 
 }
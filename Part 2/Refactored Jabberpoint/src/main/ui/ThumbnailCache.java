@@ -0,0 +1,126 @@
+package main.ui;
+
+import main.util.ImageCache;
+
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * ThumbnailCache keeps low resolution renders of slides, keyed by slide number.
+ * Every thumbnail records the content digest of the slide it was rendered from,
+ * so it stays valid when a paged slide is created again, and can be checked
+ * against the slide without painting having to create it. The least recently
+ * shown thumbnails are evicted when the byte budget is exceeded.
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+public class ThumbnailCache {
+    private static final long DEFAULT_MAX_BYTES = Long.getLong("jabberpoint.thumbnailCacheBytes", 32L * 1024 * 1024); //Default budget
+    private final LinkedHashMap<Integer, Thumbnail> thumbnails = new LinkedHashMap<>(16, 0.75f, true); //Thumbnails in LRU order
+    private long maxBytes = DEFAULT_MAX_BYTES; //The byte budget
+    private long currentBytes; //The bytes held by the thumbnails
+
+    /**
+     * get the thumbnail of a slide
+     * This may have been rendered from an older version of the slide, see isCurrent.
+     *
+     * @param index the number of the slide
+     * @return the thumbnail, or null if there is none
+     */
+    public synchronized BufferedImage get(int index) {
+        Thumbnail thumbnail = thumbnails.get(index);
+        return thumbnail != null ? thumbnail.image() : null;
+    }
+
+    /**
+     * Checks whether the thumbnail of a slide was rendered from the current content
+     *
+     * @param index         the number of the slide
+     * @param contentDigest the content digest of the slide
+     * @return true if there is a thumbnail and it matches the slide content
+     */
+    public synchronized boolean isCurrent(int index, String contentDigest) {
+        Thumbnail thumbnail = thumbnails.get(index);
+        return thumbnail != null && thumbnail.contentDigest().equals(contentDigest);
+    }
+
+    /**
+     * add a thumbnail
+     *
+     * @param index         the number of the slide
+     * @param contentDigest the content digest of the slide when it was rendered
+     * @param image         the rendered thumbnail
+     */
+    public synchronized void put(int index, String contentDigest, BufferedImage image) {
+        remove(index);
+        thumbnails.put(index, new Thumbnail(contentDigest, image));
+        currentBytes += ImageCache.sizeOf(image);
+        evict();
+    }
+
+    /**
+     * Removes an entry
+     *
+     * @param index the number of the slide
+     */
+    private void remove(int index) {
+        Thumbnail removed = thumbnails.remove(index);
+        if (removed != null) {
+            currentBytes -= ImageCache.sizeOf(removed.image());
+        }
+    }
+
+    /**
+     * Removes the least recently used thumbnails until the budget is met
+     */
+    private void evict() {
+        Iterator<Thumbnail> iterator = thumbnails.values().iterator();
+        while (currentBytes > maxBytes && iterator.hasNext()) {
+            currentBytes -= ImageCache.sizeOf(iterator.next().image());
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Removes all thumbnails
+     */
+    public synchronized void clear() {
+        thumbnails.clear();
+        currentBytes = 0;
+    }
+
+    /**
+     * Sets the byte budget
+     *
+     * @param maxBytes the byte budget
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    /**
+     * @return the number of thumbnails
+     */
+    public synchronized int getSize() {
+        return thumbnails.size();
+    }
+
+    /**
+     * @return the bytes held by the thumbnails
+     */
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    /**
+     * A slide rendered for one content digest
+     *
+     * @param contentDigest the content digest of the slide when it was rendered
+     * @param image         the rendered thumbnail
+     */
+    private record Thumbnail(String contentDigest, BufferedImage image) {
+    }
+}
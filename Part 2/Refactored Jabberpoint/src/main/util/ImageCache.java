@@ -0,0 +1,235 @@
+package main.util;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * ImageCache is the process wide store of decoded images
+ * Images are keyed by canonical path, so an image used on many slides
+ * is decoded and held only once. The total size of the rasters is kept
+ * under a byte budget by evicting the least recently used images;
+ * an evicted image is decoded again the next time it is asked for.
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+public class ImageCache {
+    private static final long DEFAULT_MAX_BYTES = Long.getLong("jabberpoint.imageCacheBytes", 256L * 1024 * 1024); // Default budget
+    private static final ImageCache shared = new ImageCache(DEFAULT_MAX_BYTES); // The process wide cache
+    private final LinkedHashMap<String, BufferedImage> images = new LinkedHashMap<>(16, 0.75f, true); // Images in LRU order
+    private final Map<String, CompletableFuture<BufferedImage>> pending = new HashMap<>(); // Decodes in progress
+    private long maxBytes; // The byte budget
+    private long currentBytes; // The bytes held by the cached images
+    private long hits; // The number of lookups that found an image
+    private long misses; // The number of lookups that found nothing
+    private long evictions; // The number of images evicted
+
+    /**
+     * Constructor for ImageCache
+     *
+     * @param maxBytes the byte budget
+     */
+    public ImageCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * get the process wide cache
+     *
+     * @return the shared image cache
+     */
+    public static ImageCache getShared() {
+        return shared;
+    }
+
+    /**
+     * get an image if it is in the cache
+     *
+     * @param key the cache key
+     * @return the image, or null if it is not cached
+     */
+    public synchronized BufferedImage getIfPresent(String key) {
+        BufferedImage image = images.get(key);
+        if (image == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return image;
+    }
+
+    /**
+     * Checks for an image without counting the lookup or changing the eviction order
+     *
+     * @param key the cache key
+     * @return true if the image is cached
+     */
+    public synchronized boolean contains(String key) {
+        return images.containsKey(key);
+    }
+
+    /**
+     * get an image, starting a background decode if it is not cached
+     * Concurrent requests for the same key share one decode
+     *
+     * @param key     the cache key
+     * @param decoder starts the decode on a miss
+     * @return a future that completes with the image
+     */
+    public synchronized CompletableFuture<BufferedImage> load(String key, Supplier<CompletableFuture<BufferedImage>> decoder) {
+        BufferedImage image = getIfPresent(key);
+        if (image != null) {
+            return CompletableFuture.completedFuture(image);
+        }
+        CompletableFuture<BufferedImage> future = pending.get(key);
+        if (future == null) {
+            future = decoder.get().whenComplete((decoded, failure) -> decodeFinished(key, decoded));
+            if (!future.isDone()) {
+                pending.put(key, future);
+            }
+        }
+        return future;
+    }
+
+    /**
+     * get an image, creating it on the calling thread if it is not cached
+     *
+     * @param key     the cache key
+     * @param creator creates the image on a miss
+     * @return the image
+     */
+    public BufferedImage computeIfAbsent(String key, Supplier<BufferedImage> creator) {
+        BufferedImage image = getIfPresent(key);
+        if (image == null) {
+            image = creator.get();
+            put(key, image);
+        }
+        return image;
+    }
+
+    /**
+     * Stores a decoded image and clears its pending decode
+     *
+     * @param key   the cache key
+     * @param image the decoded image, null if the decode failed
+     */
+    private synchronized void decodeFinished(String key, BufferedImage image) {
+        pending.remove(key);
+        if (image != null) {
+            put(key, image);
+        }
+    }
+
+    /**
+     * add an image to the cache
+     *
+     * @param key   the cache key
+     * @param image the image
+     */
+    public synchronized void put(String key, BufferedImage image) {
+        BufferedImage previous = images.put(key, image);
+        if (previous != null) {
+            currentBytes -= sizeOf(previous);
+        }
+        currentBytes += sizeOf(image);
+        evict();
+    }
+
+    /**
+     * Removes the least recently used images until the budget is met
+     * The most recently added image is always kept
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, BufferedImage>> iterator = images.entrySet().iterator();
+        while (currentBytes > maxBytes && images.size() > 1 && iterator.hasNext()) {
+            currentBytes -= sizeOf(iterator.next().getValue());
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Removes all images
+     */
+    public synchronized void clear() {
+        images.clear();
+        currentBytes = 0;
+    }
+
+    /**
+     * Sets the byte budget, evicting images if needed
+     *
+     * @param maxBytes the byte budget
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    /**
+     * @return the byte budget
+     */
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return the bytes held by the cached images
+     */
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    /**
+     * @return the number of cached images
+     */
+    public synchronized int getSize() {
+        return images.size();
+    }
+
+    /**
+     * @return the number of lookups that found an image
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups that found nothing
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of evicted images
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Estimates the memory held by the raster of an image
+     *
+     * @param image the image
+     * @return the size in bytes
+     */
+    public static long sizeOf(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    /**
+     * @return string representation of the cache statistics
+     */
+    public synchronized String toString() {
+        return "ImageCache[" + images.size() + " images, " + currentBytes + "/" + maxBytes + " bytes, "
+                + hits + " hits, " + misses + " misses, " + evictions + " evictions]";
+    }
+}
@@ -0,0 +1,198 @@
+package main.util;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ImageDecoder reads image headers and decodes images on a
+ * small pool of background threads
+ * Images can be read from any file system, such as the entries of a zip file;
+ * they are streamed from the file when they are read.
+ *
+ * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
+ * @version 1.61 2024/01/10 Carla Redmond
+ */
+public class ImageDecoder {
+    private static final int THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1)); // Decoder threads
+    private static final ExecutorService executor = createExecutor(); // The decoder pool
+
+    /**
+     * Constructor for ImageDecoder
+     */
+    private ImageDecoder() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Creates the decoder pool with daemon threads
+     *
+     * @return the executor
+     */
+    private static ExecutorService createExecutor() {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(THREADS, THREADS, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "image-decoder-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+    }
+
+    /**
+     * Reads the dimensions of an image from its header without decoding it
+     *
+     * @param file the image file
+     * @return the dimensions of the image
+     * @throws IOException if the file cannot be read or has an unsupported format
+     */
+    public static Dimension readDimensions(Path file) throws IOException {
+        return read(file, reader -> new Dimension(reader.getWidth(0), reader.getHeight(0)));
+    }
+
+    /**
+     * Decodes an image on the decoder pool
+     *
+     * @param file        the image file
+     * @param region      the part of the image to decode, null for the whole image
+     * @param subsampling keep every n-th pixel in both directions
+     * @return a future that completes with the decoded image
+     */
+    public static CompletableFuture<BufferedImage> decodeAsync(Path file, Rectangle region, int subsampling) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return decode(file, region, subsampling);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Decodes an image on the calling thread
+     *
+     * @param file the image file
+     * @return the decoded image
+     * @throws IOException if the file cannot be read or has an unsupported format
+     */
+    public static BufferedImage decode(Path file) throws IOException {
+        return decode(file, null, 1);
+    }
+
+    /**
+     * Decodes part of an image at reduced resolution on the calling thread
+     * Only the rows and columns that are kept are decoded into the raster
+     *
+     * @param file        the image file
+     * @param region      the part of the image to decode, null for the whole image
+     * @param subsampling keep every n-th pixel in both directions
+     * @return the decoded image
+     * @throws IOException if the file cannot be read or has an unsupported format
+     */
+    public static BufferedImage decode(Path file, Rectangle region, int subsampling) throws IOException {
+        return read(file, reader -> {
+            ImageReadParam param = reader.getDefaultReadParam();
+            if (region != null) {
+                param.setSourceRegion(region.intersection(new Rectangle(reader.getWidth(0), reader.getHeight(0))));
+            }
+            param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            return reader.read(0, param);
+        });
+    }
+
+    /**
+     * Opens an image and reads from it
+     * Files on the default file system are read with random access,
+     * others are streamed through a memory cache
+     *
+     * @param file    the image file
+     * @param reading what to read from the image
+     * @param <T>     the type of the result
+     * @return the result of the reading
+     * @throws IOException if the file cannot be read or has an unsupported format
+     */
+    private static <T> T read(Path file, ImageReading<T> reading) throws IOException {
+        if (file.getFileSystem() == FileSystems.getDefault()) {
+            try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+                return read(file, input, reading);
+            }
+        }
+        try (InputStream stream = new BufferedInputStream(Files.newInputStream(file));
+             ImageInputStream input = new MemoryCacheImageInputStream(stream)) {
+            return read(file, input, reading);
+        }
+    }
+
+    /**
+     * Reads from an open image
+     *
+     * @param file    the image file
+     * @param input   the image stream, null if the file could not be opened
+     * @param reading what to read from the image
+     * @param <T>     the type of the result
+     * @return the result of the reading
+     * @throws IOException if the file cannot be read or has an unsupported format
+     */
+    private static <T> T read(Path file, ImageInputStream input, ImageReading<T> reading) throws IOException {
+        if (input == null) {
+            throw new IOException("Cannot open image file " + file);
+        }
+        ImageReader reader = getReader(input);
+        try {
+            reader.setInput(input, true, true);
+            return reading.read(reader);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * Finds a reader for an image stream
+     *
+     * @param input the image stream
+     * @return the reader
+     * @throws IOException if no reader supports the format
+     */
+    private static ImageReader getReader(ImageInputStream input) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            throw new IOException("Unsupported image file format or corrupted file.");
+        }
+        return readers.next();
+    }
+
+    /**
+     * Reads something from an image
+     *
+     * @param <T> the type of the result
+     */
+    private interface ImageReading<T> {
+
+        /**
+         * Reads from the image
+         *
+         * @param reader the reader, positioned on the image
+         * @return the result
+         * @throws IOException if the image cannot be read
+         */
+        T read(ImageReader reader) throws IOException;
+    }
+}
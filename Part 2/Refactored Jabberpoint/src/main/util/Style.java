@@ -1,6 +1,8 @@
 package main.util;
 
 import java.awt.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Style represents Indent, Color, Font and Leading
@@ -19,6 +21,7 @@ public class Style {
     private final Font font; // The font
     private final int fontSize; // The font size
     private final int leading; // The leading
+    private final Map<Integer, Font> derivedFonts = new ConcurrentHashMap<>(); // Scaled fonts by size in half points
 
     /**
      * @param indent the indent
@@ -70,11 +73,15 @@ public class Style {
     }
 
     /**
+     * The font size is rounded to half a point, so that resizing a window
+     * reuses a handful of fonts instead of deriving one per pixel
+     *
      * @param scale the scale
      * @return the derived font
      */
     public Font getDerivedFont(float scale) {
-        return font.deriveFont(fontSize * scale);
+        int halfPoints = Math.max(1, Math.round(fontSize * scale * 2));
+        return derivedFonts.computeIfAbsent(halfPoints, size -> font.deriveFont(size / 2f));
     }
 
     /**
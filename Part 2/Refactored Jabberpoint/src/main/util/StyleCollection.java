@@ -1,43 +1,90 @@
 package main.util;
 
 import java.awt.*;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * StyleCollection is a collection of styles
+ * Styles are looked up by level in an array. A collection can override
+ * some levels of a parent collection and fall back to it for the others,
+ * so slides share one style sheet and only carry the styles they change.
  *
  * @author Ian F. Darwin, ian@darwinsys.com, Gert Florijn, Sylvia Stuurman
  * @version 1.61 2024/01/10 Carla Redmond
  */
 public class StyleCollection {
-    private final Map<Integer, Style> styles; // The styles
+    private static final StyleCollection DEFAULT = createDefault(); // The shared default style sheet
+    private Style[] styles = new Style[0]; // The styles by level
+    private StyleCollection parent; // The collection to fall back to, may be null
+    private final boolean locked; // Locked collections cannot be changed
 
     /**
      * Constructor for StyleCollection
      */
     public StyleCollection() {
-        this.styles = new HashMap<>();
+        this(null, false);
         initializeDefaultStyles();
     }
 
+    /**
+     * Constructor for StyleCollection
+     *
+     * @param parent the collection to fall back to, may be null
+     * @param locked true if the collection cannot be changed
+     */
+    private StyleCollection(StyleCollection parent, boolean locked) {
+        this.parent = parent;
+        this.locked = locked;
+    }
+
+    /**
+     * get the shared default style sheet
+     * The default style sheet cannot be changed
+     *
+     * @return the default style sheet
+     */
+    public static StyleCollection getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Creates an empty collection that overrides another
+     *
+     * @param parent the collection to fall back to
+     * @return the overriding collection
+     */
+    public static StyleCollection overriding(StyleCollection parent) {
+        return new StyleCollection(parent, false);
+    }
+
+    /**
+     * Creates the shared default style sheet
+     *
+     * @return the locked default style sheet
+     */
+    private static StyleCollection createDefault() {
+        StyleCollection defaults = new StyleCollection(null, true);
+        defaults.initializeDefaultStyles();
+        return defaults;
+    }
+
     /**
      * Initialize the default styles
      */
     private void initializeDefaultStyles() {
-        styles.put(0, new Style(0, Color.red, 48, 20));
+        putStyle(0, new Style(0, Color.red, 48, 20));
 
         // Style for level 1
-        styles.put(1, new Style(20, Color.blue, 40, 10));
+        putStyle(1, new Style(20, Color.blue, 40, 10));
 
         // Style for level 2
-        styles.put(2, new Style(50, Color.black, 36, 10));
+        putStyle(2, new Style(50, Color.black, 36, 10));
 
         // Style for level 3
-        styles.put(3, new Style(70, Color.black, 30, 10));
+        putStyle(3, new Style(70, Color.black, 30, 10));
 
         // Style for level 4
-        styles.put(4, new Style(90, Color.black, 24, 10));
+        putStyle(4, new Style(90, Color.black, 24, 10));
     }
 
     /**
@@ -47,7 +94,21 @@ public class StyleCollection {
      * @param style the style
      */
     public void addStyle(int level, Style style) {
-        styles.put(level, style);
+        checkUnlocked();
+        putStyle(level, style);
+    }
+
+    /**
+     * Stores a style, growing the array if needed
+     *
+     * @param level the level of the style
+     * @param style the style
+     */
+    private void putStyle(int level, Style style) {
+        if (level >= styles.length) {
+            styles = Arrays.copyOf(styles, level + 1);
+        }
+        styles[level] = style;
     }
 
     /**
@@ -57,7 +118,10 @@ public class StyleCollection {
      * @return the style
      */
     public Style getStyle(int level) {
-        return styles.get(level);
+        if (level >= 0 && level < styles.length && styles[level] != null) {
+            return styles[level];
+        }
+        return parent == null ? null : parent.getStyle(level);
     }
 
     /**
@@ -67,7 +131,10 @@ public class StyleCollection {
      * @param style the style
      */
     public void updateStyle(int level, Style style) {
-        styles.replace(level, style);
+        checkUnlocked();
+        if (level >= 0 && level < styles.length && styles[level] != null) {
+            styles[level] = style;
+        }
     }
 
     /**
@@ -76,7 +143,10 @@ public class StyleCollection {
      * @param level the level of the style
      */
     public void removeStyle(int level) {
-        styles.remove(level);
+        checkUnlocked();
+        if (level >= 0 && level < styles.length) {
+            styles[level] = null;
+        }
     }
 
     /**
@@ -85,7 +155,41 @@ public class StyleCollection {
      * @return the number of styles
      */
     public int getNumberOfStyles() {
-        return styles.size();
+        int count = 0;
+        for (Style style : styles) {
+            if (style != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * get the collection this one falls back to
+     *
+     * @return the parent collection, may be null
+     */
+    public StyleCollection getParent() {
+        return parent;
+    }
+
+    /**
+     * set the collection this one falls back to
+     *
+     * @param parent the parent collection, may be null
+     */
+    public void setParent(StyleCollection parent) {
+        checkUnlocked();
+        this.parent = parent;
+    }
+
+    /**
+     * Checks that the collection may be changed
+     */
+    private void checkUnlocked() {
+        if (locked) {
+            throw new UnsupportedOperationException("The style collection is shared and cannot be changed");
+        }
     }
 
 }
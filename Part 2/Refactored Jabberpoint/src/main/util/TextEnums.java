@@ -2,6 +2,7 @@ package main.util;
 
 public enum TextEnums {
     FILE("File"),
+    FIND("Find"),
     ABOUT("About"),
     EXIT("Exit"),
     GOTO("Go to"),
@@ -13,6 +14,7 @@ public enum TextEnums {
     PAGENOTFOUND("Page not found!"),
     PREV("Prev"),
     SAVE("Save"),
+    THUMBNAILS("Thumbnails"),
     VIEW("View"),
     JAB_VERSION("Jabberpoint 1.6 - OU version"),
     SHOWTITLE("showtitle"),